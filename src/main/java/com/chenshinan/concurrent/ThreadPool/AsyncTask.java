@@ -0,0 +1,51 @@
+package com.chenshinan.concurrent.ThreadPool;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * ThreadPoolExecutor.submitAsync()返回的任务：同一个对象既是放入等待队列的Runnable，也是任务的CompletableFuture
+ * 相比submit()返回FutureTask再由调用方适配成CompletableFuture，每次提交只分配这一个对象（加上回调本身）
+ * 回调通过CompletableFuture的thenApply、whenComplete等方法注册，不会阻塞；
+ * 任务开始执行前被取消或完成时，出队后不再执行
+ *
+ * @author shinan.chen
+ * @since 2026/10/16
+ */
+public final class AsyncTask<V> extends CompletableFuture<V> implements Runnable {
+
+    /**
+     * 待执行的任务，Callable或Runnable，开始执行后置为null
+     */
+    private Object task;
+
+    AsyncTask(Callable<? extends V> callable) {
+        this.task = callable;
+    }
+
+    /**
+     * Runnable任务完成时以null完成
+     */
+    AsyncTask(Runnable runnable) {
+        this.task = runnable;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void run() {
+        Object t = task;
+        if (t == null || isDone())
+            return;
+        task = null;
+        try {
+            if (t instanceof Callable)
+                complete(((Callable<? extends V>) t).call());
+            else {
+                ((Runnable) t).run();
+                complete(null);
+            }
+        } catch (Throwable ex) {
+            completeExceptionally(ex);
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.chenshinan.concurrent.ThreadPool;
+
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * 支持批量入队的阻塞队列，ThreadPoolExecutor.executeAll()在workQueue实现该接口时一次性入队整批任务
+ *
+ * @author shinan.chen
+ * @since 2026/10/16
+ */
+public interface BulkBlockingQueue<E> extends BlockingQueue<E> {
+
+    /**
+     * 按顺序尽可能多地入队，不阻塞，并且只唤醒与入队数量相当的等待消费者
+     *
+     * @return 入队的元素个数，即elements中前n个元素入队成功
+     */
+    int offerAll(List<? extends E> elements);
+}
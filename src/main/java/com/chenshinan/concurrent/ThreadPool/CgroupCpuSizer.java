@@ -0,0 +1,300 @@
+package com.chenshinan.concurrent.ThreadPool;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 按容器的CPU限制调整线程池大小：从/sys/fs/cgroup读取cgroup v1/v2的CPU配额、周期与cpuset，
+ * 有效并行度 = min(宿主机处理器数, ceil(配额 / 周期), cpuset中的CPU个数)，至少为1
+ * 低版本的JDK 8中availableProcessors()返回宿主机核数，4核配额的容器会创建出按64核计算的线程池并被大量限流；
+ * 配额可能在运行期间被修改（如k8s原地调整资源），所以定期重新计算，
+ * 并按coreFactor、maxFactor换算为核心线程数与最大线程数应用到线程池
+ * 用于构造线程池时，可以直接使用effectiveParallelism()作为初始大小
+ * 一个线程池只能由一个组件定期调整大小：start时登记，线程池已被PoolSizingController等其他组件登记时抛出IllegalStateException
+ *
+ * @author shinan.chen
+ * @since 2026/10/16
+ */
+public class CgroupCpuSizer {
+
+    private static final Path DEFAULT_CGROUP_ROOT = Paths.get("/sys/fs/cgroup");
+    private static final Path DEFAULT_PROC_SELF_CGROUP = Paths.get("/proc/self/cgroup");
+
+    private final ThreadPoolExecutor executor;
+    private final double coreFactor;
+    private final double maxFactor;
+    private final long intervalNanos;
+    private final Path cgroupRoot;
+    private final Path procSelfCgroup;
+    /**
+     * 执行检查的单线程调度器，start时创建
+     */
+    private ScheduledExecutorService scheduler;
+    /**
+     * 最近一次计算出的有效并行度
+     */
+    private volatile int parallelism;
+
+    /**
+     * @param coreFactor 核心线程数 = ceil(有效并行度 * coreFactor)，CPU密集型任务取1
+     * @param maxFactor  最大线程数 = ceil(有效并行度 * maxFactor)，不小于核心线程数
+     * @param interval   重新计算的间隔
+     */
+    public CgroupCpuSizer(ThreadPoolExecutor executor,
+                          double coreFactor,
+                          double maxFactor,
+                          long interval,
+                          TimeUnit unit) {
+        this(executor, coreFactor, maxFactor, interval, unit, DEFAULT_CGROUP_ROOT, DEFAULT_PROC_SELF_CGROUP);
+    }
+
+    /**
+     * @param cgroupRoot     cgroup文件系统的挂载点
+     * @param procSelfCgroup 当前进程所属的cgroup，即/proc/self/cgroup
+     */
+    public CgroupCpuSizer(ThreadPoolExecutor executor,
+                          double coreFactor,
+                          double maxFactor,
+                          long interval,
+                          TimeUnit unit,
+                          Path cgroupRoot,
+                          Path procSelfCgroup) {
+        if (executor == null || unit == null || cgroupRoot == null || procSelfCgroup == null)
+            throw new NullPointerException();
+        if (!(coreFactor > 0D) || !(maxFactor > 0D) || interval <= 0)
+            throw new IllegalArgumentException();
+        this.executor = executor;
+        this.coreFactor = coreFactor;
+        this.maxFactor = maxFactor;
+        this.intervalNanos = unit.toNanos(interval);
+        this.cgroupRoot = cgroupRoot;
+        this.procSelfCgroup = procSelfCgroup;
+    }
+
+    /**
+     * 立即按当前的CPU限制调整一次线程池，并开始定期调整；线程池大小已由其他组件调整时抛出IllegalStateException
+     */
+    public synchronized void start() {
+        if (scheduler != null)
+            return;
+        executor.claimPoolSizeOwnership(this);
+        adjust();
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "cgroup-cpu-sizer");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(this::adjust, intervalNanos, intervalNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 停止调整，线程池保持当前大小
+     */
+    public synchronized void stop() {
+        if (scheduler == null)
+            return;
+        scheduler.shutdownNow();
+        scheduler = null;
+        executor.releasePoolSizeOwnership(this);
+    }
+
+    /**
+     * 最近一次计算出的有效并行度，start之前为0
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * 重新计算有效并行度，变化时调整线程池大小，线程池已经shutdown则停止调整
+     * 失败时保留上一次成功计算的并行度与线程池大小，异常交给当前线程的UncaughtExceptionHandler，
+     * 不向外抛出，否则scheduleWithFixedDelay会取消后续的重新计算
+     */
+    synchronized void adjust() {
+        try {
+            if (executor.isShutdown()) {
+                stop();
+                return;
+            }
+            int p = effectiveParallelism(cgroupRoot, procSelfCgroup);
+            int core = Math.max(1, (int) Math.ceil(p * coreFactor));
+            int max = Math.max(core, (int) Math.ceil(p * maxFactor));
+            if (core != executor.getCorePoolSize() || max != executor.getMaximumPoolSize())
+                executor.setPoolSize(core, max);
+            parallelism = p;
+        } catch (RuntimeException e) {
+            Thread t = Thread.currentThread();
+            t.getUncaughtExceptionHandler().uncaughtException(t, e);
+        }
+    }
+
+    /**
+     * 当前进程的有效并行度，读取默认位置的cgroup文件
+     */
+    public static int effectiveParallelism() {
+        return effectiveParallelism(DEFAULT_CGROUP_ROOT, DEFAULT_PROC_SELF_CGROUP);
+    }
+
+    /**
+     * 当前进程的有效并行度，不在cgroup中或读取失败的部分视为不限制
+     */
+    public static int effectiveParallelism(Path cgroupRoot, Path procSelfCgroup) {
+        int cpus = Math.min(Runtime.getRuntime().availableProcessors(), cgroupLimit(cgroupRoot, procSelfCgroup));
+        return Math.max(1, cpus);
+    }
+
+    /**
+     * cgroup限制的CPU个数，不考虑宿主机处理器数，不限制时返回Integer.MAX_VALUE
+     */
+    static int cgroupLimit(Path cgroupRoot, Path procSelfCgroup) {
+        if (Files.exists(cgroupRoot.resolve("cgroup.controllers")))
+            return cgroupV2Limit(cgroupRoot, cgroupPath(procSelfCgroup, ""));
+        return cgroupV1Limit(cgroupRoot, procSelfCgroup);
+    }
+
+    /**
+     * cgroup v2：从进程所在的cgroup向上到根，cpu.max的限制取最小值；cpuset.cpus.effective已经包含了祖先的限制
+     */
+    private static int cgroupV2Limit(Path root, String path) {
+        int limit = Integer.MAX_VALUE;
+        Path leaf = existingDirectory(root, path);
+        for (Path dir = leaf; dir != null && dir.startsWith(root); dir = dir.getParent()) {
+            String max = readFirstLine(dir.resolve("cpu.max"));
+            if (max == null)
+                continue;
+            // 格式为"$MAX $PERIOD"，$MAX为max表示不限制
+            String[] fields = max.trim().split("\\s+");
+            if (fields.length == 2 && !"max".equals(fields[0]))
+                limit = Math.min(limit, quotaCpus(parseLong(fields[0]), parseLong(fields[1])));
+        }
+        return Math.min(limit, cpusetCount(readFirstLine(leaf.resolve("cpuset.cpus.effective"))));
+    }
+
+    /**
+     * cgroup v1：cpu与cpuset是两个独立的层级，各自按/proc/self/cgroup中的路径查找
+     * 与v2一样从进程所在的cgroup向上到挂载点，cfs配额取最小值；子cgroup的cpuset.cpus必须是父cgroup的子集，只读取进程所在的cgroup
+     */
+    private static int cgroupV1Limit(Path root, Path procSelfCgroup) {
+        int limit = Integer.MAX_VALUE;
+        Path cpuMount = v1Mount(root, "cpu");
+        if (cpuMount != null) {
+            Path leaf = existingDirectory(cpuMount, cgroupPath(procSelfCgroup, "cpu"));
+            for (Path dir = leaf; dir != null && dir.startsWith(cpuMount); dir = dir.getParent()) {
+                String quota = readFirstLine(dir.resolve("cpu.cfs_quota_us"));
+                String period = readFirstLine(dir.resolve("cpu.cfs_period_us"));
+                if (quota != null && period != null)
+                    limit = Math.min(limit, quotaCpus(parseLong(quota), parseLong(period)));
+            }
+        }
+        Path cpusetMount = v1Mount(root, "cpuset");
+        if (cpusetMount != null) {
+            Path leaf = existingDirectory(cpusetMount, cgroupPath(procSelfCgroup, "cpuset"));
+            limit = Math.min(limit, cpusetCount(readFirstLine(leaf.resolve("cpuset.cpus"))));
+        }
+        return limit;
+    }
+
+    /**
+     * v1控制器的挂载目录，cpu控制器可能挂载为cpu、cpu,cpuacct或cpuacct,cpu，没有挂载返回null
+     */
+    private static Path v1Mount(Path root, String controller) {
+        String[] mounts = "cpu".equals(controller)
+                ? new String[]{"cpu", "cpu,cpuacct", "cpuacct,cpu"}
+                : new String[]{controller};
+        for (String mount : mounts) {
+            Path base = root.resolve(mount);
+            if (Files.isDirectory(base))
+                return base;
+        }
+        return null;
+    }
+
+    /**
+     * 进程所在的cgroup目录；容器内通常只挂载了自己的cgroup，/proc/self/cgroup中的路径不存在，此时使用挂载点本身
+     */
+    private static Path existingDirectory(Path base, String path) {
+        if (path == null || path.isEmpty() || "/".equals(path))
+            return base;
+        Path dir = base.resolve(path.substring(1));
+        return Files.isDirectory(dir) ? dir : base;
+    }
+
+    /**
+     * 在/proc/self/cgroup中查找控制器对应的路径，每行格式为"层级ID:控制器列表:路径"，cgroup v2的控制器列表为空
+     */
+    private static String cgroupPath(Path procSelfCgroup, String controller) {
+        List<String> lines;
+        try {
+            lines = Files.readAllLines(procSelfCgroup, StandardCharsets.UTF_8);
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+        for (String line : lines) {
+            String[] fields = line.split(":", 3);
+            if (fields.length != 3)
+                continue;
+            if (controller.isEmpty() ? fields[1].isEmpty() : contains(fields[1].split(","), controller))
+                return fields[2];
+        }
+        return null;
+    }
+
+    private static boolean contains(String[] values, String value) {
+        for (String v : values) {
+            if (v.equals(value))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * 配额换算为CPU个数，向上取整；配额为负数（v1中-1表示不限制）或无效时不限制
+     */
+    private static int quotaCpus(long quota, long period) {
+        if (quota <= 0L || period <= 0L)
+            return Integer.MAX_VALUE;
+        return (int) Math.min(Integer.MAX_VALUE, (quota + period - 1) / period);
+    }
+
+    /**
+     * 统计cpuset列表中的CPU个数，格式如"0-3,8,10-11"，为空或无效时不限制
+     */
+    private static int cpusetCount(String cpus) {
+        if (cpus == null || cpus.trim().isEmpty())
+            return Integer.MAX_VALUE;
+        int count = 0;
+        for (String range : cpus.trim().split(",")) {
+            int dash = range.indexOf('-');
+            long low = parseLong(dash < 0 ? range : range.substring(0, dash));
+            long high = dash < 0 ? low : parseLong(range.substring(dash + 1));
+            if (low < 0L || high < low)
+                return Integer.MAX_VALUE;
+            count += (int) (high - low + 1);
+        }
+        return count;
+    }
+
+    private static long parseLong(String s) {
+        try {
+            return Long.parseLong(s.trim());
+        } catch (NumberFormatException e) {
+            return -1L;
+        }
+    }
+
+    private static String readFirstLine(Path file) {
+        try {
+            List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+            return lines.isEmpty() ? null : lines.get(0);
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,385 @@
+package com.chenshinan.concurrent.ThreadPool;
+
+import java.util.AbstractQueue;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 按截止时间最早优先（EDF）出队的阻塞队列，可作为ThreadPoolExecutor的workQueue
+ * DeadlineTask按自己的截止时间排序；普通任务的排序截止时间为入队时间加上defaultTimeout，
+ * 这样普通任务不会被源源不断的截止时间任务饿死。截止时间相同时按入队顺序FIFO
+ *
+ * @author shinan.chen
+ * @since 2026/10/16
+ */
+public class DeadlineBlockingQueue extends AbstractQueue<Runnable> implements BulkBlockingQueue<Runnable> {
+
+    /**
+     * 截止时间与当前时间的最大间隔，约36年；更远的截止时间按它计算，保证任意两个截止时间的差值不会溢出
+     */
+    static final long NO_DEADLINE_NANOS = Long.MAX_VALUE >> 2;
+    /**
+     * 无参构造时普通任务的排序超时时间
+     */
+    private static final long DEFAULT_TIMEOUT_SECONDS = 1L;
+
+    /**
+     * 队列中的元素，记录排序用的截止时间与入队序号
+     */
+    private static final class Entry implements Comparable<Entry> {
+        final Runnable task;
+        final long deadline;
+        final long seq;
+
+        Entry(Runnable task, long deadline, long seq) {
+            this.task = task;
+            this.deadline = deadline;
+            this.seq = seq;
+        }
+
+        @Override
+        public int compareTo(Entry o) {
+            // nanoTime可能溢出，使用差值比较
+            long d = deadline - o.deadline;
+            if (d != 0L)
+                return d < 0L ? -1 : 1;
+            return seq < o.seq ? -1 : (seq == o.seq ? 0 : 1);
+        }
+    }
+
+    private final PriorityQueue<Entry> queue = new PriorityQueue<Entry>();
+    private final int capacity;
+    private final long defaultTimeoutNanos;
+    private long sequence;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+
+    /**
+     * 无界队列，普通任务按入队后1秒作为排序截止时间，最多被截止时间更早的任务推迟到该时间之后
+     */
+    public DeadlineBlockingQueue() {
+        this(Integer.MAX_VALUE, DEFAULT_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * @param capacity       队列容量
+     * @param defaultTimeout 普通任务用于排序的超时时间，普通任务不会因此过期；
+     *                       取值越大，普通任务越容易被截止时间任务推迟，超过约36年时普通任务总是排在截止时间任务之后
+     */
+    public DeadlineBlockingQueue(int capacity, long defaultTimeout, TimeUnit unit) {
+        if (capacity <= 0 || defaultTimeout < 0)
+            throw new IllegalArgumentException();
+        this.capacity = capacity;
+        this.defaultTimeoutNanos = Math.min(unit.toNanos(defaultTimeout), NO_DEADLINE_NANOS);
+    }
+
+    /**
+     * 计算任务排序用的截止时间，任务可能被线程池包装过
+     */
+    private long deadlineOf(Runnable r) {
+        DeadlineTask t = ThreadPoolExecutor.deadlineTaskOf(r);
+        return t != null ? t.getDeadlineNanos() : System.nanoTime() + defaultTimeoutNanos;
+    }
+
+    /**
+     * 持有锁时入队并唤醒一个等待的消费者
+     */
+    private void enqueue(Runnable e) {
+        queue.add(new Entry(e, deadlineOf(e), sequence++));
+        notEmpty.signal();
+    }
+
+    /**
+     * 持有锁时出队并唤醒一个等待的生产者
+     */
+    private Runnable dequeue() {
+        Entry e = queue.poll();
+        if (e == null)
+            return null;
+        notFull.signal();
+        return e.task;
+    }
+
+    @Override
+    public boolean offer(Runnable e) {
+        if (e == null)
+            throw new NullPointerException();
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            if (queue.size() >= capacity)
+                return false;
+            enqueue(e);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 一次加锁批量入队，按入队数量与等待的消费者数量唤醒
+     */
+    @Override
+    public int offerAll(List<? extends Runnable> elements) {
+        for (Runnable e : elements) {
+            if (e == null)
+                throw new NullPointerException();
+        }
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            int n = Math.min(elements.size(), capacity - queue.size());
+            for (int i = 0; i < n; i++) {
+                Runnable e = elements.get(i);
+                queue.add(new Entry(e, deadlineOf(e), sequence++));
+            }
+            for (int k = Math.min(n, lock.getWaitQueueLength(notEmpty)); k > 0; k--)
+                notEmpty.signal();
+            return Math.max(n, 0);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void put(Runnable e) throws InterruptedException {
+        if (e == null)
+            throw new NullPointerException();
+        final ReentrantLock lock = this.lock;
+        lock.lockInterruptibly();
+        try {
+            while (queue.size() >= capacity)
+                notFull.await();
+            enqueue(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean offer(Runnable e, long timeout, TimeUnit unit) throws InterruptedException {
+        if (e == null)
+            throw new NullPointerException();
+        long nanos = unit.toNanos(timeout);
+        final ReentrantLock lock = this.lock;
+        lock.lockInterruptibly();
+        try {
+            while (queue.size() >= capacity) {
+                if (nanos <= 0L)
+                    return false;
+                nanos = notFull.awaitNanos(nanos);
+            }
+            enqueue(e);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Runnable poll() {
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            return dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Runnable take() throws InterruptedException {
+        final ReentrantLock lock = this.lock;
+        lock.lockInterruptibly();
+        try {
+            while (queue.isEmpty())
+                notEmpty.await();
+            return dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Runnable poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        final ReentrantLock lock = this.lock;
+        lock.lockInterruptibly();
+        try {
+            while (queue.isEmpty()) {
+                if (nanos <= 0L)
+                    return null;
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            return dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Runnable peek() {
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            Entry e = queue.peek();
+            return e == null ? null : e.task;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            return queue.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int remainingCapacity() {
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            return capacity - queue.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        if (o == null)
+            return false;
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            for (Iterator<Entry> it = queue.iterator(); it.hasNext(); ) {
+                if (o.equals(it.next().task)) {
+                    it.remove();
+                    notFull.signal();
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void clear() {
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            queue.clear();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int drainTo(Collection<? super Runnable> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super Runnable> c, int maxElements) {
+        if (c == null)
+            throw new NullPointerException();
+        if (c == this)
+            throw new IllegalArgumentException();
+        if (maxElements <= 0)
+            return 0;
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            int n = 0;
+            Entry e;
+            while (n < maxElements && (e = queue.poll()) != null) {
+                c.add(e.task);
+                n++;
+            }
+            if (n > 0)
+                notFull.signalAll();
+            return n;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 返回队列快照的迭代器，顺序不保证为出队顺序，通过迭代器删除会删除队列中的元素
+     */
+    @Override
+    public Iterator<Runnable> iterator() {
+        final Runnable[] snapshot;
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            snapshot = new Runnable[queue.size()];
+            int i = 0;
+            for (Entry e : queue)
+                snapshot[i++] = e.task;
+        } finally {
+            lock.unlock();
+        }
+        return new Iterator<Runnable>() {
+            int cursor;
+            int lastRet = -1;
+
+            @Override
+            public boolean hasNext() {
+                return cursor < snapshot.length;
+            }
+
+            @Override
+            public Runnable next() {
+                if (cursor >= snapshot.length)
+                    throw new NoSuchElementException();
+                lastRet = cursor;
+                return snapshot[cursor++];
+            }
+
+            @Override
+            public void remove() {
+                if (lastRet < 0)
+                    throw new IllegalStateException();
+                removeEq(snapshot[lastRet]);
+                lastRet = -1;
+            }
+        };
+    }
+
+    /**
+     * 按引用删除元素，供迭代器使用
+     */
+    private void removeEq(Object o) {
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            for (Iterator<Entry> it = queue.iterator(); it.hasNext(); ) {
+                if (it.next().task == o) {
+                    it.remove();
+                    notFull.signal();
+                    break;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.chenshinan.concurrent.ThreadPool;
+
+/**
+ * 带截止时间的任务，截止时间基于System.nanoTime()
+ * 配合DeadlineBlockingQueue使用时按截止时间最早优先（EDF）出队，出队时已过期的任务不会被执行
+ *
+ * @author shinan.chen
+ * @since 2026/10/16
+ */
+public final class DeadlineTask implements Runnable {
+
+    private final Runnable task;
+    private final long deadlineNanos;
+
+    public DeadlineTask(Runnable task, long deadlineNanos) {
+        if (task == null)
+            throw new NullPointerException();
+        this.task = task;
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    public Runnable getTask() {
+        return task;
+    }
+
+    public long getDeadlineNanos() {
+        return deadlineNanos;
+    }
+
+    /**
+     * 在给定时间点是否已经过期
+     */
+    public boolean isExpired(long nowNanos) {
+        return nowNanos - deadlineNanos > 0L;
+    }
+
+    @Override
+    public void run() {
+        task.run();
+    }
+}
@@ -0,0 +1,19 @@
+package com.chenshinan.concurrent.ThreadPool;
+
+/**
+ * 代表其他工作的任务，例如KeyedSerialExecutor中一个key的执行者、HashedWheelScheduler中到期的定时任务
+ * 这类任务被线程池接受后，所有者会认为它一定会执行；如果它又在执行之前被从等待队列中丢弃，
+ * 需要通过onDiscard()通知所有者，否则所有者会一直等待，后续的工作永远不会执行
+ * 拒绝策略等从等待队列中丢弃任务时调用ThreadPoolExecutor.discard()，由它回调onDiscard()；
+ * 出队时已过期的丢弃与CoDelPolicy的出队削峰不处理这类任务，它们总是会被执行
+ *
+ * @author shinan.chen
+ * @since 2026/10/16
+ */
+public interface DiscardAwareTask extends Runnable {
+
+    /**
+     * 任务被线程池接受后未执行就被丢弃，在丢弃任务的线程中调用，不应抛出异常
+     */
+    void onDiscard();
+}
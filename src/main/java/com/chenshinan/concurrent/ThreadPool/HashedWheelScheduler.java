@@ -0,0 +1,347 @@
+package com.chenshinan.concurrent.ThreadPool;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 基于分层哈希时间轮的定时调度器，到期的任务交给ThreadPoolExecutor执行
+ * 相比基于堆的延迟队列每个定时器O(log n)的开销，时间轮的添加与取消都是O(1)，适合持有海量请求超时
+ * <p>
+ * 每一层有wheelSize个桶，第0层每个桶代表一个tick，第k层每个桶代表wheelSize^k个tick。
+ * 定时任务放在能容纳其剩余tick数的最低一层，随着时间推进，上层的桶被逐层降级到下层，最终在第0层到期。
+ * 桶只由时间轮线程访问：其他线程添加和取消的任务先放入无锁队列，由时间轮线程在每个tick开始时处理
+ *
+ * @author shinan.chen
+ * @since 2026/10/16
+ */
+public class HashedWheelScheduler {
+
+    /**
+     * 时间轮中的桶，定时任务组成的双向链表
+     */
+    static final class Bucket {
+        WheelTimeout head;
+        WheelTimeout tail;
+
+        void add(WheelTimeout t) {
+            t.bucket = this;
+            t.prev = tail;
+            t.next = null;
+            if (tail == null)
+                head = t;
+            else
+                tail.next = t;
+            tail = t;
+        }
+
+        void remove(WheelTimeout t) {
+            if (t.prev == null)
+                head = t.next;
+            else
+                t.prev.next = t.next;
+            if (t.next == null)
+                tail = t.prev;
+            else
+                t.next.prev = t.prev;
+            t.prev = t.next = null;
+            t.bucket = null;
+        }
+
+        /**
+         * 取出桶中所有任务并清空
+         */
+        WheelTimeout clear() {
+            WheelTimeout h = head;
+            head = tail = null;
+            return h;
+        }
+    }
+
+    private static final int ST_INIT = 0;
+    private static final int ST_STARTED = 1;
+    private static final int ST_STOPPED = 2;
+
+    private final ThreadPoolExecutor executor;
+    private final long tickNanos;
+    /** 每层桶数为2^wheelBits */
+    private final int wheelBits;
+    private final int mask;
+    private final Bucket[][] wheels;
+    /** 新添加的任务，等待时间轮线程放入桶中 */
+    private final Queue<WheelTimeout> pendingTimeouts = new ConcurrentLinkedQueue<WheelTimeout>();
+    /** 已取消的任务，等待时间轮线程从桶中摘除 */
+    private final Queue<WheelTimeout> cancelledTimeouts = new ConcurrentLinkedQueue<WheelTimeout>();
+    private final AtomicInteger state = new AtomicInteger(ST_INIT);
+    private final Thread workerThread;
+    /** 时间轮启动的时间，tick从这里开始计算 */
+    private volatile long startNanos;
+    /** 当前tick，只由时间轮线程访问 */
+    private long currentTick;
+    /** 到期时未被线程池接受、或被接受后又被丢弃的次数 */
+    private final LongAdder rejectedCount = new LongAdder();
+    /** 停止时尚未到期的任务，由时间轮线程退出前收集 */
+    private volatile Set<WheelTimeout> unprocessedTimeouts = Collections.emptySet();
+
+    /**
+     * @param executor    执行到期任务的线程池
+     * @param tickDuration 每个tick的时长，即定时精度
+     * @param wheelSize   每层的桶数，会向上取整为2的幂
+     */
+    public HashedWheelScheduler(ThreadPoolExecutor executor, long tickDuration, TimeUnit unit, int wheelSize) {
+        if (executor == null || unit == null)
+            throw new NullPointerException();
+        if (tickDuration <= 0 || wheelSize <= 1 || wheelSize > (1 << 16))
+            throw new IllegalArgumentException();
+        this.executor = executor;
+        this.tickNanos = unit.toNanos(tickDuration);
+        this.wheelBits = 32 - Integer.numberOfLeadingZeros(wheelSize - 1);
+        this.mask = (1 << wheelBits) - 1;
+        // 层数足以覆盖全部long范围的tick
+        int levels = (63 + wheelBits - 1) / wheelBits;
+        this.wheels = new Bucket[levels][1 << wheelBits];
+        for (Bucket[] wheel : wheels) {
+            for (int i = 0; i < wheel.length; i++)
+                wheel[i] = new Bucket();
+        }
+        this.workerThread = new Thread(this::runTicks, "hashed-wheel-scheduler");
+        this.workerThread.setDaemon(true);
+    }
+
+    /**
+     * 延迟执行一次
+     */
+    public WheelTimeout schedule(Runnable task, long delay, TimeUnit unit) {
+        return add(task, delay, 0L, unit);
+    }
+
+    /**
+     * 固定频率执行：第n次到期时间为initialDelay + n * period；一次执行超过周期时，下一次会延后开始，不会并发执行
+     */
+    public WheelTimeout scheduleAtFixedRate(Runnable task, long initialDelay, long period, TimeUnit unit) {
+        if (period <= 0)
+            throw new IllegalArgumentException();
+        return add(task, initialDelay, unit.toNanos(period), unit);
+    }
+
+    /**
+     * 固定延迟执行：每次执行结束后再延迟delay执行下一次
+     */
+    public WheelTimeout scheduleWithFixedDelay(Runnable task, long initialDelay, long delay, TimeUnit unit) {
+        if (delay <= 0)
+            throw new IllegalArgumentException();
+        return add(task, initialDelay, -unit.toNanos(delay), unit);
+    }
+
+    private WheelTimeout add(Runnable task, long delay, long period, TimeUnit unit) {
+        if (task == null || unit == null)
+            throw new NullPointerException();
+        start();
+        WheelTimeout t = new WheelTimeout(this, task,
+                System.nanoTime() + Math.max(0L, unit.toNanos(delay)), period);
+        enqueuePending(t);
+        return t;
+    }
+
+    /**
+     * 放入新增队列，之后若时间轮已经停止，时间轮线程可能已经收集完尚未到期的任务，由当前线程取消它
+     */
+    private void enqueuePending(WheelTimeout t) {
+        pendingTimeouts.add(t);
+        if (state.get() == ST_STOPPED && pendingTimeouts.remove(t))
+            t.cancel();
+    }
+
+    /**
+     * 启动时间轮线程，添加任务时会自动调用
+     */
+    public void start() {
+        switch (state.get()) {
+            case ST_INIT:
+                if (state.compareAndSet(ST_INIT, ST_STARTED)) {
+                    startNanos = System.nanoTime();
+                    workerThread.start();
+                }
+                break;
+            case ST_STARTED:
+                break;
+            default:
+                throw new IllegalStateException("cannot be started once stopped");
+        }
+    }
+
+    /**
+     * 停止时间轮线程，等待它退出，返回尚未到期的任务，这些任务都已被取消，不会再执行
+     * 已提交给线程池的任务不受影响；正在线程池中执行的周期任务结束后不再放回时间轮，同样被取消
+     * 不能在时间轮线程中调用
+     */
+    public Set<WheelTimeout> stop() {
+        if (Thread.currentThread() == workerThread)
+            throw new IllegalStateException("cannot be stopped from the wheel thread");
+        if (state.getAndSet(ST_STOPPED) != ST_STARTED)
+            return Collections.emptySet();
+        LockSupport.unpark(workerThread);
+        boolean interrupted = false;
+        while (workerThread.isAlive()) {
+            try {
+                workerThread.join(100L);
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted)
+            Thread.currentThread().interrupt();
+        return unprocessedTimeouts;
+    }
+
+    /**
+     * 返回到期时未被线程池接受的次数，以及被接受后又被丢弃（ThreadPoolExecutor.discard()）的次数
+     * 到期的任务通过ThreadPoolExecutor.tryExecute()提交，不经过拒绝策略，因此不论拒绝策略是否抛出异常都能感知；
+     * 未被接受的一次性任务变为已取消；周期任务跳过该次执行，线程池已关闭时取消
+     */
+    public long getRejectedCount() {
+        return rejectedCount.sum();
+    }
+
+    /**
+     * 周期任务执行完毕，重新放回时间轮
+     */
+    void reschedule(WheelTimeout t) {
+        enqueuePending(t);
+    }
+
+    /**
+     * 已提交给线程池的任务未被执行：被线程池拒绝，或者排队时被丢弃
+     */
+    void rejected(WheelTimeout t) {
+        rejectedCount.increment();
+        t.rejected(executor.isShutdown());
+    }
+
+    /**
+     * 任务被取消
+     */
+    void cancelled(WheelTimeout t) {
+        cancelledTimeouts.add(t);
+    }
+
+    /**
+     * 时间轮线程主循环：等到下一个tick，处理取消与新增的任务，降级上层的桶，执行第0层到期的桶
+     */
+    private void runTicks() {
+        while (state.get() == ST_STARTED) {
+            long tick = currentTick + 1;
+            long deadline = startNanos + tick * tickNanos;
+            long nanos;
+            while ((nanos = deadline - System.nanoTime()) > 0L) {
+                LockSupport.parkNanos(this, nanos);
+                if (state.get() != ST_STARTED)
+                    break;
+            }
+            if (state.get() != ST_STARTED)
+                break;
+            currentTick = tick;
+            processCancelled();
+            transferPending();
+            // 从高层到低层依次降级：当前tick是第k层一个桶的起点时，把该桶中的任务重新放到下层
+            for (int level = wheels.length - 1; level > 0; level--) {
+                int shift = level * wheelBits;
+                if ((tick & ((1L << shift) - 1)) != 0L)
+                    continue;
+                WheelTimeout t = wheels[level][(int) (tick >>> shift) & mask].clear();
+                while (t != null) {
+                    WheelTimeout next = t.next;
+                    t.prev = t.next = null;
+                    t.bucket = null;
+                    place(t);
+                    t = next;
+                }
+            }
+            expire(wheels[0][(int) tick & mask].clear());
+        }
+        collectUnprocessed();
+    }
+
+    /**
+     * 时间轮线程退出前，取消桶中与新增队列中尚未到期的任务，由stop()返回
+     */
+    private void collectUnprocessed() {
+        Set<WheelTimeout> unprocessed = new HashSet<WheelTimeout>();
+        for (Bucket[] wheel : wheels) {
+            for (Bucket bucket : wheel) {
+                WheelTimeout t = bucket.clear();
+                while (t != null) {
+                    WheelTimeout next = t.next;
+                    t.prev = t.next = null;
+                    t.bucket = null;
+                    if (t.cancel())
+                        unprocessed.add(t);
+                    t = next;
+                }
+            }
+        }
+        WheelTimeout t;
+        while ((t = pendingTimeouts.poll()) != null) {
+            if (t.cancel())
+                unprocessed.add(t);
+        }
+        cancelledTimeouts.clear();
+        unprocessedTimeouts = Collections.unmodifiableSet(unprocessed);
+    }
+
+    private void processCancelled() {
+        WheelTimeout t;
+        while ((t = cancelledTimeouts.poll()) != null) {
+            Bucket b = t.bucket;
+            if (b != null)
+                b.remove(t);
+        }
+    }
+
+    private void transferPending() {
+        WheelTimeout t;
+        while ((t = pendingTimeouts.poll()) != null) {
+            if (t.isCancelled())
+                continue;
+            long ticks = (t.deadlineNanos - startNanos + tickNanos - 1) / tickNanos;
+            t.deadlineTick = Math.max(ticks, currentTick);
+            place(t);
+        }
+    }
+
+    /**
+     * 把任务放入能容纳其剩余tick数的最低一层；已经到期的任务直接执行
+     */
+    private void place(WheelTimeout t) {
+        long remaining = t.deadlineTick - currentTick;
+        if (remaining <= 0L) {
+            expire(t);
+            return;
+        }
+        int level = 0;
+        while (level < wheels.length - 1 && remaining >= (1L << ((level + 1) * wheelBits)))
+            level++;
+        int index = (int) (t.deadlineTick >>> (level * wheelBits)) & mask;
+        wheels[level][index].add(t);
+    }
+
+    /**
+     * 依次把链表中到期的任务提交给线程池
+     */
+    private void expire(WheelTimeout t) {
+        while (t != null) {
+            WheelTimeout next = t.next;
+            t.prev = t.next = null;
+            t.bucket = null;
+            if (t.fire() && ! executor.tryExecute(t))
+                rejected(t);
+            t = next;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.chenshinan.concurrent.ThreadPool;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.BlockingQueue;
+import java.util.function.IntSupplier;
+
+/**
+ * 工作者空闲策略：队列暂时为空时，工作者依次忙等、带onSpinWait提示的自旋、yield，最后才阻塞在队列上
+ * 这样紧接着提交的任务可以被自旋的工作者直接取走，省去一次unpark和线程唤醒的开销
+ * 自旋期间只读取线程池的入队信号（一次volatile读），信号变化时才poll()，
+ * 不会在每次自旋时都获取LinkedBlockingQueue、ArrayBlockingQueue等队列的锁而与提交者竞争；
+ * 拿到任务立即返回，各阶段的次数为0则跳过该阶段
+ *
+ * @author shinan.chen
+ * @since 2026/10/16
+ */
+public final class IdleStrategy {
+    /**
+     * 立即阻塞，即默认行为
+     */
+    public static final IdleStrategy PARK = new IdleStrategy(0, 0, 0);
+
+    /**
+     * Thread.onSpinWait()，Java 9才提供，Java 8上为null，退化为普通忙等
+     */
+    private static final MethodHandle ON_SPIN_WAIT = findOnSpinWait();
+
+    /** 忙等轮询次数 */
+    private final int busySpins;
+    /** 带onSpinWait提示的自旋轮询次数 */
+    private final int hintedSpins;
+    /** yield轮询次数 */
+    private final int yields;
+
+    public IdleStrategy(int busySpins, int hintedSpins, int yields) {
+        if (busySpins < 0 || hintedSpins < 0 || yields < 0)
+            throw new IllegalArgumentException();
+        this.busySpins = busySpins;
+        this.hintedSpins = hintedSpins;
+        this.yields = yields;
+    }
+
+    private static MethodHandle findOnSpinWait() {
+        try {
+            return MethodHandles.lookup().findStatic(Thread.class, "onSpinWait",
+                    MethodType.methodType(void.class));
+        } catch (Throwable unsupported) {
+            return null;
+        }
+    }
+
+    private static void onSpinWait() {
+        if (ON_SPIN_WAIT != null) {
+            try {
+                ON_SPIN_WAIT.invokeExact();
+            } catch (Throwable ignore) {
+            }
+        }
+    }
+
+    /**
+     * 是否立即阻塞
+     */
+    boolean isPark() {
+        return busySpins == 0 && hintedSpins == 0 && yields == 0;
+    }
+
+    /**
+     * 按策略等待入队信号，拿到任务则返回，所有阶段都结束仍没有任务则返回null，由调用方阻塞等待
+     * 先读取信号再poll()一次，取走登记自旋之前已经入队的任务；之后信号变化时才再次poll()
+     */
+    Runnable idle(BlockingQueue<Runnable> q, IntSupplier signal) {
+        int seen = signal.getAsInt();
+        Runnable r = q.poll();
+        int hintedEnd = busySpins + hintedSpins;
+        for (int i = 0, n = hintedEnd + yields; r == null && i < n; i++) {
+            int current = signal.getAsInt();
+            if (current != seen) {
+                seen = current;
+                if ((r = q.poll()) != null)
+                    break;
+            }
+            if (i >= hintedEnd)
+                Thread.yield();
+            else if (i >= busySpins)
+                onSpinWait();
+        }
+        return r;
+    }
+
+    @Override
+    public String toString() {
+        return "IdleStrategy[busySpins = " + busySpins +
+                ", hintedSpins = " + hintedSpins +
+                ", yields = " + yields + "]";
+    }
+}
@@ -0,0 +1,155 @@
+package com.chenshinan.concurrent.ThreadPool;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 按key串行的执行器：相同key的任务按提交顺序依次执行，不同key的任务在共享的线程池中并行执行
+ * 每个有任务的key对应一个串行队列，同一时刻最多只有一个该key的执行者（SerialQueue本身）在线程池中排队或执行；
+ * 队列为空时立即从keys中移除，空闲的key不占用任何内存
+ * 执行者每次最多连续执行quantum个任务，之后若还有任务则重新提交到线程池共享队列的队尾（不进入工作者的本地队列），
+ * 这样多个热点key轮流获得工作者，不会因为某个key的任务源源不断而饿死其他key
+ * 执行者通过ThreadPoolExecutor.tryExecute()提交，不依赖拒绝策略抛出异常来判断是否被接受，
+ * 因此线程池使用DiscardPolicy等不抛出异常的拒绝策略时，key也不会一直停留在keys中而不再执行；
+ * 执行者实现了DiscardAwareTask，排队时被丢弃（ThreadPoolExecutor.discard()）也会移除key，并把已有的任务交给拒绝策略
+ *
+ * @author shinan.chen
+ * @since 2026/10/16
+ */
+public class KeyedSerialExecutor<K> {
+
+    private static final int DEFAULT_QUANTUM = 16;
+
+    private final ThreadPoolExecutor executor;
+    private final int quantum;
+    /**
+     * 有待执行任务的key，存在于keys中等价于该key的执行者已提交到线程池
+     */
+    private final ConcurrentHashMap<K, SerialQueue> keys = new ConcurrentHashMap<K, SerialQueue>();
+
+    public KeyedSerialExecutor(ThreadPoolExecutor executor) {
+        this(executor, DEFAULT_QUANTUM);
+    }
+
+    /**
+     * @param quantum 执行者每次连续执行的最大任务数
+     */
+    public KeyedSerialExecutor(ThreadPoolExecutor executor, int quantum) {
+        if (executor == null)
+            throw new NullPointerException();
+        if (quantum <= 0)
+            throw new IllegalArgumentException();
+        this.executor = executor;
+        this.quantum = quantum;
+    }
+
+    /**
+     * 提交key的任务，在该key之前提交的任务都执行完后执行
+     * 如果该key当前空闲而线程池拒绝了执行者，该key已追加的任务都交给线程池的拒绝策略，并抛出RejectedExecutionException
+     */
+    public void execute(K key, Runnable task) {
+        if (key == null || task == null)
+            throw new NullPointerException();
+        // 在key所在的桶锁内追加任务，与执行者的移除互斥
+        SerialQueue q = keys.compute(key, (k, v) -> {
+            if (v == null)
+                v = new SerialQueue(k);
+            v.tasks.offer(task);
+            return v;
+        });
+        if (q.unscheduled.compareAndSet(true, false))
+            schedule(q);
+    }
+
+    /**
+     * 有待执行任务的key个数
+     */
+    public int getActiveKeyCount() {
+        return keys.size();
+    }
+
+    public ThreadPoolExecutor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * 提交执行者，未被线程池接受时丢弃该key的状态
+     * 在桶锁内移除后不会再有任务追加到该队列，其中已有的任务（包括其他提交者追加的）逐个交给线程池的拒绝策略，
+     * 与直接提交给线程池被拒绝时的处理相同，不会被静默丢弃；拒绝策略抛出的第一个异常在处理完所有任务后抛给调用方
+     */
+    private void schedule(SerialQueue q) {
+        if (executor.tryExecute(q))
+            return;
+        RejectedExecutionException ex = q.rejectPending();
+        if (ex != null)
+            throw ex;
+    }
+
+    /**
+     * 一个key的串行队列，同时也是提交到线程池的执行者
+     */
+    private final class SerialQueue implements DiscardAwareTask {
+        final K key;
+        final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<Runnable>();
+        /**
+         * 创建后尚未提交到线程池，由第一个看到它的提交者负责提交
+         */
+        final AtomicBoolean unscheduled = new AtomicBoolean(true);
+
+        SerialQueue(K key) {
+            this.key = key;
+        }
+
+        /**
+         * 在桶锁内移除该key，之后的任务会重新创建执行者；已有的任务逐个交给线程池的拒绝策略，
+         * 返回拒绝策略抛出的第一个异常，调用方只收到一次
+         */
+        RejectedExecutionException rejectPending() {
+            keys.remove(key, this);
+            RejectedExecutionException ex = null;
+            Runnable task;
+            while ((task = tasks.poll()) != null) {
+                try {
+                    executor.reject(task);
+                } catch (RejectedExecutionException e) {
+                    if (ex == null)
+                        ex = e;
+                }
+            }
+            return ex;
+        }
+
+        /**
+         * 执行者在排队时被丢弃（如DiscardOldestPolicy），与提交时被拒绝相同，已有的任务都交给拒绝策略
+         * 在丢弃者的线程中调用，拒绝策略抛出的异常不传播给丢弃者
+         */
+        @Override
+        public void onDiscard() {
+            rejectPending();
+        }
+
+        @Override
+        public void run() {
+            try {
+                for (int i = 0; i < quantum; i++) {
+                    Runnable task = tasks.poll();
+                    if (task == null)
+                        break;
+                    task.run();
+                }
+            } finally {
+                // 任务抛出异常时也要让后续任务继续执行
+                // 队列为空则在桶锁内移除该key，否则重新提交到线程池共享队列的队尾
+                // 重新提交未被接受时剩余任务已交给拒绝策略，工作者线程中没有调用方接收异常，忽略
+                if (keys.computeIfPresent(key, (k, v) -> v.tasks.isEmpty() ? null : v) != null) {
+                    try {
+                        schedule(this);
+                    } catch (RejectedExecutionException ignore) {
+                    }
+                }
+            }
+        }
+    }
+}
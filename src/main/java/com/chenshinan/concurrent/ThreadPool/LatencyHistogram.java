@@ -0,0 +1,75 @@
+package com.chenshinan.concurrent.ThreadPool;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 无锁的耗时直方图（纳秒），按2的幂分段，每段再均分为8个子桶，相对误差不超过12.5%
+ * 每个工作者持有自己的直方图，只有该工作者写入，因此record只用lazySet而不需要CAS；读取方可以随时并发汇总
+ *
+ * @author shinan.chen
+ * @since 2026/10/16
+ */
+final class LatencyHistogram {
+    /**
+     * 每个2的幂区间划分的子桶数为2^SUB_BUCKET_BITS
+     */
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    /**
+     * 桶总数，覆盖[0, Long.MAX_VALUE]
+     */
+    static final int BUCKET_COUNT = (Long.SIZE - SUB_BUCKET_BITS) << SUB_BUCKET_BITS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+
+    /**
+     * 单写者记录一个值，只能由持有该直方图的工作者调用
+     */
+    void record(long value) {
+        int i = indexOf(value);
+        counts.lazySet(i, counts.get(i) + 1);
+    }
+
+    /**
+     * 把另一个直方图的计数并发安全地累加到当前直方图，用于工作者退出时合并
+     */
+    void add(LatencyHistogram other) {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            long n = other.counts.get(i);
+            if (n != 0L)
+                counts.addAndGet(i, n);
+        }
+    }
+
+    /**
+     * 把当前计数累加到数组中
+     */
+    void addTo(long[] target) {
+        for (int i = 0; i < BUCKET_COUNT; i++)
+            target[i] += counts.get(i);
+    }
+
+    /**
+     * 计算值所在的桶：小于8的值精确记录，否则取最高位所在的区间，再用随后的3位确定子桶
+     */
+    static int indexOf(long value) {
+        if (value < SUB_BUCKET_COUNT)
+            return value < 0L ? 0 : (int) value;
+        int exp = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exp - SUB_BUCKET_BITS;
+        int sub = (int) (value >>> shift) & (SUB_BUCKET_COUNT - 1);
+        return ((shift + 1) << SUB_BUCKET_BITS) + sub;
+    }
+
+    /**
+     * 返回桶内的最大值
+     */
+    static long highestValueAt(int index) {
+        if (index < SUB_BUCKET_COUNT)
+            return index;
+        int shift = (index >>> SUB_BUCKET_BITS) - 1;
+        long sub = index & (SUB_BUCKET_COUNT - 1);
+        long lowest = (SUB_BUCKET_COUNT + sub) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+}
@@ -0,0 +1,66 @@
+package com.chenshinan.concurrent.ThreadPool;
+
+/**
+ * 耗时直方图在某一时刻的快照（纳秒），百分位数取所在桶的上界
+ *
+ * @author shinan.chen
+ * @since 2026/10/16
+ */
+public final class LatencySnapshot {
+
+    private final long[] counts;
+    private final long totalCount;
+
+    LatencySnapshot(long[] counts) {
+        this.counts = counts;
+        long total = 0L;
+        for (long n : counts)
+            total += n;
+        this.totalCount = total;
+    }
+
+    /**
+     * 记录的样本数
+     */
+    public long getCount() {
+        return totalCount;
+    }
+
+    /**
+     * 返回百分位数，percentile取值(0, 100]，没有样本则返回0
+     */
+    public long getPercentile(double percentile) {
+        if (!(percentile > 0D && percentile <= 100D))
+            throw new IllegalArgumentException();
+        if (totalCount == 0L)
+            return 0L;
+        long rank = (long) Math.ceil(percentile / 100D * totalCount);
+        long seen = 0L;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank)
+                return LatencyHistogram.highestValueAt(i);
+        }
+        return LatencyHistogram.highestValueAt(counts.length - 1);
+    }
+
+    public long getP50() {
+        return getPercentile(50D);
+    }
+
+    public long getP99() {
+        return getPercentile(99D);
+    }
+
+    public long getP999() {
+        return getPercentile(99.9D);
+    }
+
+    @Override
+    public String toString() {
+        return "[count = " + totalCount +
+                ", p50 = " + getP50() +
+                ", p99 = " + getP99() +
+                ", p999 = " + getP999() + "]";
+    }
+}
@@ -0,0 +1,40 @@
+package com.chenshinan.concurrent.ThreadPool;
+
+/**
+ * 基于利特尔法则（L = λW）的线程池大小调整策略
+ * 稳态下需要的忙碌线程数 = 到达率 * 平均执行耗时；再加上在一个采样周期内清空积压任务所需的线程数，
+ * 最后除以目标利用率，留出余量应对突发流量
+ *
+ * @author shinan.chen
+ * @since 2026/10/16
+ */
+public class LittleLawSizingPolicy implements PoolSizingPolicy {
+    /**
+     * 目标利用率，取值(0, 1]
+     */
+    private final double targetUtilization;
+
+    public LittleLawSizingPolicy() {
+        this(0.8D);
+    }
+
+    public LittleLawSizingPolicy(double targetUtilization) {
+        if (!(targetUtilization > 0D && targetUtilization <= 1D))
+            throw new IllegalArgumentException();
+        this.targetUtilization = targetUtilization;
+    }
+
+    @Override
+    public int resize(PoolSizingSample sample) {
+        double runNanos = sample.getAverageRunNanos();
+        // 周期内没有任务完成，无法估算执行耗时：有积压则试探性增加一个线程，完全空闲则缩到下界，否则保持不变
+        if (runNanos == 0D) {
+            if (sample.getQueueSize() > 0)
+                return sample.getCorePoolSize() + 1;
+            return sample.getSubmittedCount() == 0L ? 0 : sample.getCorePoolSize();
+        }
+        double busy = sample.getArrivalRate() * runNanos;
+        double backlog = sample.getQueueSize() * runNanos / sample.getIntervalNanos();
+        return (int) Math.ceil((busy + backlog) / targetUtilization);
+    }
+}
@@ -0,0 +1,160 @@
+package com.chenshinan.concurrent.ThreadPool;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 线程池大小自适应控制器：定期采样线程池的队列长度、排队时间与任务执行耗时，
+ * 交给PoolSizingPolicy计算期望的核心线程数，并在[minPoolSize, maxPoolSize]范围内调整线程池
+ * 扩容时立即启动新的工作者，缩容时多出的空闲工作者在keepAliveTime后退出
+ * 目标值超过线程池原有的maximumPoolSize时临时提高最大线程数，需求回落后再降回原值；
+ * 缩容有滞后：连续SHRINK_SAMPLES次采样的目标值都低于当前大小才缩小，避免负载抖动时反复启停线程
+ * 一个线程池只能由一个组件定期调整大小：start时登记，线程池已被CgroupCpuSizer等其他组件登记时抛出IllegalStateException
+ *
+ * @author shinan.chen
+ * @since 2026/10/16
+ */
+public class PoolSizingController {
+
+    /**
+     * 连续多少次采样的目标值都低于当前大小才缩容
+     */
+    private static final int SHRINK_SAMPLES = 3;
+
+    private final ThreadPoolExecutor executor;
+    private final PoolSizingPolicy policy;
+    private final int minPoolSize;
+    private final int maxPoolSize;
+    private final long intervalNanos;
+    /**
+     * 执行采样的单线程调度器，start时创建
+     */
+    private ScheduledExecutorService scheduler;
+
+    /** 上一次采样时的累计值 */
+    private long lastNanos;
+    private long lastSubmitted;
+    private long lastCompleted;
+    private long lastRunNanos;
+    /**
+     * start时线程池的maximumPoolSize，缩容时最大线程数降回不低于它
+     */
+    private int baseMaximumPoolSize;
+    /**
+     * 连续低于当前大小的采样次数，以及其间最大的目标值
+     */
+    private int shrinkSamples;
+    private int shrinkTarget;
+
+    public PoolSizingController(ThreadPoolExecutor executor,
+                                PoolSizingPolicy policy,
+                                int minPoolSize,
+                                int maxPoolSize,
+                                long interval,
+                                TimeUnit unit) {
+        if (executor == null || policy == null || unit == null)
+            throw new NullPointerException();
+        if (minPoolSize < 0 || maxPoolSize <= 0 || maxPoolSize < minPoolSize || interval <= 0)
+            throw new IllegalArgumentException();
+        this.executor = executor;
+        this.policy = policy;
+        this.minPoolSize = minPoolSize;
+        this.maxPoolSize = maxPoolSize;
+        this.intervalNanos = unit.toNanos(interval);
+    }
+
+    /**
+     * 开启线程池采样，并开始定期调整；线程池大小已由其他组件调整时抛出IllegalStateException
+     */
+    public synchronized void start() {
+        if (scheduler != null)
+            return;
+        executor.claimPoolSizeOwnership(this);
+        executor.setSampling(true);
+        baseMaximumPoolSize = executor.getMaximumPoolSize();
+        shrinkSamples = 0;
+        lastNanos = System.nanoTime();
+        lastSubmitted = executor.getSampledSubmittedCount();
+        lastCompleted = executor.getSampledCompletedCount();
+        lastRunNanos = executor.getSampledRunNanos();
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "pool-sizing-controller");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(this::adjust, intervalNanos, intervalNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 停止调整，并关闭线程池采样，线程池保持当前大小
+     */
+    public synchronized void stop() {
+        if (scheduler == null)
+            return;
+        scheduler.shutdownNow();
+        scheduler = null;
+        executor.setSampling(false);
+        executor.releasePoolSizeOwnership(this);
+    }
+
+    /**
+     * 采样一次并调整线程池大小，线程池已经shutdown则停止调整
+     * 异常交给调度线程的UncaughtExceptionHandler，不向外抛出，否则scheduleWithFixedDelay会取消后续的调整
+     */
+    synchronized void adjust() {
+        try {
+            if (executor.isShutdown()) {
+                stop();
+                return;
+            }
+            PoolSizingSample sample = sample();
+            int target = Math.max(minPoolSize, Math.min(maxPoolSize, policy.resize(sample)));
+            int core = executor.getCorePoolSize();
+            if (target >= core) {
+                shrinkSamples = 0;
+                if (target > core)
+                    resize(target);
+                return;
+            }
+            // 缩容取滞后期间最大的目标值
+            shrinkTarget = shrinkSamples == 0 ? target : Math.max(shrinkTarget, target);
+            if (++shrinkSamples >= SHRINK_SAMPLES) {
+                shrinkSamples = 0;
+                resize(shrinkTarget);
+            }
+        } catch (RuntimeException e) {
+            Thread t = Thread.currentThread();
+            t.getUncaughtExceptionHandler().uncaughtException(t, e);
+        }
+    }
+
+    /**
+     * 核心线程数调整为target，最大线程数不低于target，也不低于start时的原值
+     */
+    private void resize(int target) {
+        executor.setPoolSize(target, Math.max(baseMaximumPoolSize, target));
+    }
+
+    /**
+     * 计算与上一次采样之间的增量
+     */
+    private PoolSizingSample sample() {
+        long now = System.nanoTime();
+        long submitted = executor.getSampledSubmittedCount();
+        long completed = executor.getSampledCompletedCount();
+        long runNanos = executor.getSampledRunNanos();
+        PoolSizingSample sample = new PoolSizingSample(now - lastNanos,
+                executor.getPoolSize(),
+                executor.getCorePoolSize(),
+                executor.getQueuedTaskCount(),
+                submitted - lastSubmitted,
+                completed - lastCompleted,
+                runNanos - lastRunNanos);
+        lastNanos = now;
+        lastSubmitted = submitted;
+        lastCompleted = completed;
+        lastRunNanos = runNanos;
+        return sample;
+    }
+}
@@ -0,0 +1,16 @@
+package com.chenshinan.concurrent.ThreadPool;
+
+/**
+ * 线程池大小调整策略，由PoolSizingController定期调用
+ *
+ * @author shinan.chen
+ * @since 2026/10/16
+ */
+public interface PoolSizingPolicy {
+
+    /**
+     * 根据一个采样周期的统计结果，返回期望的核心线程数
+     * 返回值会被PoolSizingController限制在配置的上下界之内
+     */
+    int resize(PoolSizingSample sample);
+}
@@ -0,0 +1,95 @@
+package com.chenshinan.concurrent.ThreadPool;
+
+/**
+ * 线程池在一个采样周期内的统计结果
+ *
+ * @author shinan.chen
+ * @since 2026/10/16
+ */
+public final class PoolSizingSample {
+    /** 采样周期（纳秒） */
+    private final long intervalNanos;
+    /** 采样时的线程数 */
+    private final int poolSize;
+    /** 采样时的核心线程数 */
+    private final int corePoolSize;
+    /** 采样时排队中的任务数，包括工作者本地队列与批量缓冲中的任务 */
+    private final int queueSize;
+    /** 周期内提交的任务数 */
+    private final long submittedCount;
+    /** 周期内完成的任务数 */
+    private final long completedCount;
+    /** 周期内完成任务的总执行耗时（纳秒） */
+    private final long runNanos;
+
+    PoolSizingSample(long intervalNanos, int poolSize, int corePoolSize, int queueSize,
+                     long submittedCount, long completedCount, long runNanos) {
+        this.intervalNanos = intervalNanos;
+        this.poolSize = poolSize;
+        this.corePoolSize = corePoolSize;
+        this.queueSize = queueSize;
+        this.submittedCount = submittedCount;
+        this.completedCount = completedCount;
+        this.runNanos = runNanos;
+    }
+
+    public long getIntervalNanos() {
+        return intervalNanos;
+    }
+
+    public int getPoolSize() {
+        return poolSize;
+    }
+
+    public int getCorePoolSize() {
+        return corePoolSize;
+    }
+
+    public int getQueueSize() {
+        return queueSize;
+    }
+
+    public long getSubmittedCount() {
+        return submittedCount;
+    }
+
+    public long getCompletedCount() {
+        return completedCount;
+    }
+
+    /**
+     * 任务到达率：每纳秒提交的任务数
+     */
+    public double getArrivalRate() {
+        return intervalNanos <= 0L ? 0D : (double) submittedCount / intervalNanos;
+    }
+
+    /**
+     * 任务平均执行耗时（纳秒），周期内没有完成的任务则返回0
+     */
+    public double getAverageRunNanos() {
+        return completedCount == 0L ? 0D : (double) runNanos / completedCount;
+    }
+
+    /**
+     * 根据利特尔法则估算的任务平均排队时间（纳秒）：排队时间 = 队列长度 / 到达率
+     * 周期内没有任务提交但队列不为空，说明任务一直在排队，返回整个采样周期
+     */
+    public double getAverageQueueWaitNanos() {
+        if (queueSize == 0)
+            return 0D;
+        double rate = getArrivalRate();
+        return rate == 0D ? intervalNanos : queueSize / rate;
+    }
+
+    @Override
+    public String toString() {
+        return "PoolSizingSample[poolSize = " + poolSize +
+                ", corePoolSize = " + corePoolSize +
+                ", queueSize = " + queueSize +
+                ", submitted = " + submittedCount +
+                ", completed = " + completedCount +
+                ", avgRunNanos = " + (long) getAverageRunNanos() +
+                ", avgQueueWaitNanos = " + (long) getAverageQueueWaitNanos() + "]";
+    }
+}
@@ -0,0 +1,89 @@
+package com.chenshinan.concurrent.ThreadPool;
+
+/**
+ * 线程池统计快照，由ThreadPoolExecutor.getStats()在不加锁的情况下采集，各值之间只保证大致一致
+ *
+ * @author shinan.chen
+ * @since 2026/10/16
+ */
+public final class PoolStats {
+
+    private final long submittedTaskCount;
+    private final long completedTaskCount;
+    private final long rejectedTaskCount;
+    private final int activeCount;
+    private final int queuedTaskCount;
+    private final int poolSize;
+    private final int largestPoolSize;
+
+    PoolStats(long submittedTaskCount, long completedTaskCount, long rejectedTaskCount,
+              int activeCount, int queuedTaskCount, int poolSize, int largestPoolSize) {
+        this.submittedTaskCount = submittedTaskCount;
+        this.completedTaskCount = completedTaskCount;
+        this.rejectedTaskCount = rejectedTaskCount;
+        this.activeCount = activeCount;
+        this.queuedTaskCount = queuedTaskCount;
+        this.poolSize = poolSize;
+        this.largestPoolSize = largestPoolSize;
+    }
+
+    /**
+     * 累计提交的任务数，包括被拒绝的任务
+     */
+    public long getSubmittedTaskCount() {
+        return submittedTaskCount;
+    }
+
+    /**
+     * 累计完成的任务数
+     */
+    public long getCompletedTaskCount() {
+        return completedTaskCount;
+    }
+
+    /**
+     * 累计被拒绝的任务数
+     */
+    public long getRejectedTaskCount() {
+        return rejectedTaskCount;
+    }
+
+    /**
+     * 正在执行任务的线程数
+     */
+    public int getActiveCount() {
+        return activeCount;
+    }
+
+    /**
+     * 排队中的任务数
+     */
+    public int getQueuedTaskCount() {
+        return queuedTaskCount;
+    }
+
+    /**
+     * 线程数
+     */
+    public int getPoolSize() {
+        return poolSize;
+    }
+
+    /**
+     * 曾经同时存在的最大线程数
+     */
+    public int getLargestPoolSize() {
+        return largestPoolSize;
+    }
+
+    @Override
+    public String toString() {
+        return "PoolStats[submitted = " + submittedTaskCount +
+                ", completed = " + completedTaskCount +
+                ", rejected = " + rejectedTaskCount +
+                ", active = " + activeCount +
+                ", queued = " + queuedTaskCount +
+                ", poolSize = " + poolSize +
+                ", largestPoolSize = " + largestPoolSize + "]";
+    }
+}
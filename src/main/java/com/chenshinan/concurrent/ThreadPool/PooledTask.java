@@ -0,0 +1,67 @@
+package com.chenshinan.concurrent.ThreadPool;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * ThreadPoolExecutor.executePooled()使用的可复用任务，携带action与参数，由工作者执行完后归还到对象池
+ * 对象池是一个固定大小的槽位数组，按随机起点探测少量槽位进行获取与归还，每个槽位独立CAS，没有ABA问题；
+ * 对象池为空时新建，已满时直接丢弃交给GC
+ *
+ * @author shinan.chen
+ * @since 2026/10/16
+ */
+final class PooledTask implements Runnable {
+
+    private static final int POOL_SIZE = 256;
+    private static final int PROBES = 4;
+    private static final AtomicReferenceArray<PooledTask> POOL = new AtomicReferenceArray<PooledTask>(POOL_SIZE);
+
+    private Consumer<Object> action;
+    private Object arg;
+
+    private PooledTask() {
+    }
+
+    /**
+     * 从对象池获取一个任务，对象池为空时新建
+     */
+    @SuppressWarnings("unchecked")
+    static <T> PooledTask obtain(Consumer<? super T> action, T arg) {
+        PooledTask t = null;
+        int i = ThreadLocalRandom.current().nextInt(POOL_SIZE);
+        for (int k = 0; k < PROBES && t == null; k++)
+            t = POOL.getAndSet((i + k) & (POOL_SIZE - 1), null);
+        if (t == null)
+            t = new PooledTask();
+        t.action = (Consumer<Object>) action;
+        t.arg = arg;
+        return t;
+    }
+
+    /**
+     * 清空引用并归还到对象池
+     * 由ThreadPoolExecutor在任务执行完、afterExecute()返回并清除运行任务记录之后调用，
+     * 在此之前本对象不会被再次获取，beforeExecute()、afterExecute()与卡住检测看到的都是本次提交的任务
+     */
+    void recycle() {
+        action = null;
+        arg = null;
+        int i = ThreadLocalRandom.current().nextInt(POOL_SIZE);
+        for (int k = 0; k < PROBES; k++) {
+            if (POOL.compareAndSet((i + k) & (POOL_SIZE - 1), null, this))
+                return;
+        }
+    }
+
+    /**
+     * 只执行action，不归还本对象；不是由线程池工作者执行时（例如CallerRunsPolicy），本对象交给GC
+     */
+    @Override
+    public void run() {
+        Consumer<Object> a = action;
+        if (a != null)
+            a.accept(arg);
+    }
+}
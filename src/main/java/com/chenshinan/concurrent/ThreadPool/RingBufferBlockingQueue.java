@@ -0,0 +1,479 @@
+package com.chenshinan.concurrent.ThreadPool;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 基于预分配环形数组的有界阻塞队列，可作为ThreadPoolExecutor的workQueue
+ * 容量向上取整为2的幂，每个槽位有一个序号：生产者通过CAS推进tail认领槽位，写入元素后把槽位序号发布为pos + 1；
+ * 消费者通过CAS推进head认领已发布的槽位，取出元素后把槽位序号设为pos + capacity，供下一圈的生产者使用
+ * 入队与出队都不分配对象，也不需要加锁；只有队列为空（或满）而需要阻塞等待时，才通过锁与条件变量挂起，
+ * 生产者（或消费者）只在有等待者时才加锁唤醒
+ * remove()把槽位中的元素替换为墓碑，消费者出队时跳过墓碑，因此任意位置的删除不会移动其他元素；
+ * 墓碑在被跳过之前仍然占用槽位，remainingCapacity()把它计入占用，与offer()是否会失败保持一致，
+ * 队首的墓碑在删除时以及队列满时立即释放
+ *
+ * @author shinan.chen
+ * @since 2026/10/16
+ */
+public class RingBufferBlockingQueue extends AbstractQueue<Runnable> implements BulkBlockingQueue<Runnable> {
+
+    /**
+     * 被remove()删除的元素的占位
+     */
+    private static final Runnable TOMBSTONE = () -> { };
+
+    private final int capacity;
+    private final int mask;
+    private final AtomicReferenceArray<Runnable> buffer;
+    private final AtomicLongArray sequences;
+    /** 下一个出队的位置 */
+    private final AtomicLong head = new AtomicLong();
+    /** 下一个入队的位置 */
+    private final AtomicLong tail = new AtomicLong();
+    /** 已被删除但还没被消费者跳过的墓碑数 */
+    private final AtomicInteger tombstones = new AtomicInteger();
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    /** 等待元素的消费者数 */
+    private final AtomicInteger waitingConsumers = new AtomicInteger();
+    /** 等待空位的生产者数 */
+    private final AtomicInteger waitingProducers = new AtomicInteger();
+
+    /**
+     * @param capacity 队列容量，向上取整为2的幂且至少为2（容量为1时已发布与已消费的序号无法区分）
+     */
+    public RingBufferBlockingQueue(int capacity) {
+        if (capacity <= 0 || capacity > (1 << 30))
+            throw new IllegalArgumentException();
+        int n = 2;
+        while (n < capacity)
+            n <<= 1;
+        this.capacity = n;
+        this.mask = n - 1;
+        this.buffer = new AtomicReferenceArray<Runnable>(n);
+        this.sequences = new AtomicLongArray(n);
+        for (int i = 0; i < n; i++)
+            sequences.set(i, i);
+    }
+
+    /**
+     * 认领一个空槽位并发布元素，队列已满返回false
+     */
+    private boolean tryEnqueue(Runnable e) {
+        long pos = tail.get();
+        for (;;) {
+            int idx = (int) pos & mask;
+            long dif = sequences.get(idx) - pos;
+            if (dif == 0L) {
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    buffer.set(idx, e);
+                    sequences.set(idx, pos + 1);
+                    return true;
+                }
+                pos = tail.get();
+            } else if (dif < 0L) {
+                // 队列已满，队首是墓碑时释放后重试
+                if (releaseHeadTombstones() == 0)
+                    return false;
+                pos = tail.get();
+            } else
+                pos = tail.get();
+        }
+    }
+
+    /**
+     * 释放队首连续的墓碑所占的槽位，返回释放的个数
+     * 墓碑不会再变回元素，推进head成功后该槽位只属于当前线程
+     */
+    private int releaseHeadTombstones() {
+        int n = 0;
+        for (;;) {
+            long pos = head.get();
+            int idx = (int) pos & mask;
+            if (sequences.get(idx) != pos + 1 || buffer.get(idx) != TOMBSTONE)
+                return n;
+            if (head.compareAndSet(pos, pos + 1)) {
+                buffer.set(idx, null);
+                sequences.set(idx, pos + capacity);
+                tombstones.decrementAndGet();
+                n++;
+            }
+        }
+    }
+
+    /**
+     * 认领一个已发布的槽位并取出元素，跳过墓碑，队列为空返回null
+     */
+    private Runnable tryDequeue() {
+        long pos = head.get();
+        for (;;) {
+            int idx = (int) pos & mask;
+            long dif = sequences.get(idx) - (pos + 1);
+            if (dif == 0L) {
+                if (head.compareAndSet(pos, pos + 1)) {
+                    Runnable e = buffer.getAndSet(idx, null);
+                    sequences.set(idx, pos + capacity);
+                    if (e != TOMBSTONE)
+                        return e;
+                    tombstones.decrementAndGet();
+                }
+                pos = head.get();
+            } else if (dif < 0L)
+                return null;
+            else
+                pos = head.get();
+        }
+    }
+
+    /**
+     * 有消费者在等待时加锁唤醒n个
+     */
+    private void signalNotEmpty(int n) {
+        if (waitingConsumers.get() > 0) {
+            final ReentrantLock lock = this.lock;
+            lock.lock();
+            try {
+                if (n == 1)
+                    notEmpty.signal();
+                else
+                    for (int k = Math.min(n, waitingConsumers.get()); k > 0; k--)
+                        notEmpty.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * 有生产者在等待时加锁唤醒一个
+     */
+    private void signalNotFull() {
+        if (waitingProducers.get() > 0) {
+            final ReentrantLock lock = this.lock;
+            lock.lock();
+            try {
+                notFull.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    @Override
+    public boolean offer(Runnable e) {
+        if (e == null)
+            throw new NullPointerException();
+        if (! tryEnqueue(e))
+            return false;
+        signalNotEmpty(1);
+        return true;
+    }
+
+    /**
+     * 按顺序一次认领连续的n个空槽位，只唤醒与入队数量相当的等待消费者
+     * 槽位一旦变为空闲，只有认领该位置的生产者才能改变它，因此先检查再CAS推进tail是安全的
+     */
+    @Override
+    public int offerAll(List<? extends Runnable> elements) {
+        for (Runnable e : elements) {
+            if (e == null)
+                throw new NullPointerException();
+        }
+        int size = elements.size();
+        if (size == 0)
+            return 0;
+        for (;;) {
+            long pos = tail.get();
+            int n = 0;
+            while (n < size && n < capacity && sequences.get((int) (pos + n) & mask) == pos + n)
+                n++;
+            if (n == 0) {
+                if (sequences.get((int) pos & mask) - pos < 0L && releaseHeadTombstones() == 0)
+                    return 0;
+                continue;
+            }
+            if (tail.compareAndSet(pos, pos + n)) {
+                for (int i = 0; i < n; i++) {
+                    int idx = (int) (pos + i) & mask;
+                    buffer.set(idx, elements.get(i));
+                    sequences.set(idx, pos + i + 1);
+                }
+                signalNotEmpty(n);
+                return n;
+            }
+        }
+    }
+
+    @Override
+    public void put(Runnable e) throws InterruptedException {
+        if (e == null)
+            throw new NullPointerException();
+        if (! tryEnqueue(e)) {
+            final ReentrantLock lock = this.lock;
+            lock.lockInterruptibly();
+            waitingProducers.incrementAndGet();
+            try {
+                while (! tryEnqueue(e))
+                    notFull.await();
+            } finally {
+                waitingProducers.decrementAndGet();
+                lock.unlock();
+            }
+        }
+        signalNotEmpty(1);
+    }
+
+    @Override
+    public boolean offer(Runnable e, long timeout, TimeUnit unit) throws InterruptedException {
+        if (e == null)
+            throw new NullPointerException();
+        if (! tryEnqueue(e)) {
+            long nanos = unit.toNanos(timeout);
+            final ReentrantLock lock = this.lock;
+            lock.lockInterruptibly();
+            waitingProducers.incrementAndGet();
+            try {
+                while (! tryEnqueue(e)) {
+                    if (nanos <= 0L)
+                        return false;
+                    nanos = notFull.awaitNanos(nanos);
+                }
+            } finally {
+                waitingProducers.decrementAndGet();
+                lock.unlock();
+            }
+        }
+        signalNotEmpty(1);
+        return true;
+    }
+
+    @Override
+    public Runnable poll() {
+        Runnable e = tryDequeue();
+        if (e != null)
+            signalNotFull();
+        return e;
+    }
+
+    /**
+     * 先登记为等待者再重新检查队列，与生产者的“先发布再检查等待者”配合，保证不会丢失唤醒
+     */
+    @Override
+    public Runnable take() throws InterruptedException {
+        Runnable e = tryDequeue();
+        if (e == null) {
+            final ReentrantLock lock = this.lock;
+            lock.lockInterruptibly();
+            waitingConsumers.incrementAndGet();
+            try {
+                while ((e = tryDequeue()) == null)
+                    notEmpty.await();
+            } finally {
+                waitingConsumers.decrementAndGet();
+                lock.unlock();
+            }
+        }
+        signalNotFull();
+        return e;
+    }
+
+    @Override
+    public Runnable poll(long timeout, TimeUnit unit) throws InterruptedException {
+        Runnable e = tryDequeue();
+        if (e == null) {
+            long nanos = unit.toNanos(timeout);
+            final ReentrantLock lock = this.lock;
+            lock.lockInterruptibly();
+            waitingConsumers.incrementAndGet();
+            try {
+                while ((e = tryDequeue()) == null) {
+                    if (nanos <= 0L)
+                        return null;
+                    nanos = notEmpty.awaitNanos(nanos);
+                }
+            } finally {
+                waitingConsumers.decrementAndGet();
+                lock.unlock();
+            }
+        }
+        signalNotFull();
+        return e;
+    }
+
+    /**
+     * 返回队首的元素，并发出队时结果可能已经过时
+     */
+    @Override
+    public Runnable peek() {
+        for (long pos = head.get(), end = tail.get(); pos < end; pos++) {
+            int idx = (int) pos & mask;
+            if (sequences.get(idx) == pos + 1) {
+                Runnable e = buffer.get(idx);
+                if (e != null && e != TOMBSTONE)
+                    return e;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 返回队列中的元素个数（近似值），不包括已删除的元素
+     */
+    @Override
+    public int size() {
+        for (;;) {
+            long h = head.get();
+            long t = tail.get();
+            if (h == head.get()) {
+                long n = t - h - tombstones.get();
+                return n <= 0L ? 0 : (int) Math.min(n, capacity);
+            }
+        }
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * 返回剩余的空槽位数（近似值），尚未被跳过的墓碑计入占用，为0时offer()会失败
+     */
+    @Override
+    public int remainingCapacity() {
+        for (;;) {
+            long h = head.get();
+            long t = tail.get();
+            if (h == head.get())
+                return (int) Math.max(0L, capacity - (t - h));
+        }
+    }
+
+    /**
+     * 找到已发布且尚未被取走的相等元素，用墓碑替换
+     * 消费者用getAndSet取走元素，与这里的CAS只会有一个成功
+     */
+    @Override
+    public boolean remove(Object o) {
+        if (o == null)
+            return false;
+        for (long pos = head.get(), end = tail.get(); pos < end; pos++) {
+            int idx = (int) pos & mask;
+            if (sequences.get(idx) != pos + 1)
+                continue;
+            Runnable e = buffer.get(idx);
+            if (e != null && e != TOMBSTONE && o.equals(e) && buffer.compareAndSet(idx, e, TOMBSTONE)) {
+                tombstones.incrementAndGet();
+                onRemoved();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public int drainTo(Collection<? super Runnable> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super Runnable> c, int maxElements) {
+        if (c == null)
+            throw new NullPointerException();
+        if (c == this)
+            throw new IllegalArgumentException();
+        int n = 0;
+        Runnable e;
+        while (n < maxElements && (e = tryDequeue()) != null) {
+            c.add(e);
+            n++;
+        }
+        if (n > 0 && waitingProducers.get() > 0) {
+            final ReentrantLock lock = this.lock;
+            lock.lock();
+            try {
+                notFull.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+        return n;
+    }
+
+    /**
+     * 返回队列快照的迭代器，通过迭代器删除会删除队列中的元素
+     */
+    @Override
+    public Iterator<Runnable> iterator() {
+        final List<Runnable> snapshot = new ArrayList<Runnable>();
+        for (long pos = head.get(), end = tail.get(); pos < end; pos++) {
+            int idx = (int) pos & mask;
+            if (sequences.get(idx) == pos + 1) {
+                Runnable e = buffer.get(idx);
+                if (e != null && e != TOMBSTONE)
+                    snapshot.add(e);
+            }
+        }
+        return new Iterator<Runnable>() {
+            int cursor;
+            int lastRet = -1;
+
+            @Override
+            public boolean hasNext() {
+                return cursor < snapshot.size();
+            }
+
+            @Override
+            public Runnable next() {
+                if (cursor >= snapshot.size())
+                    throw new NoSuchElementException();
+                lastRet = cursor;
+                return snapshot.get(cursor++);
+            }
+
+            @Override
+            public void remove() {
+                if (lastRet < 0)
+                    throw new IllegalStateException();
+                removeEq(snapshot.get(lastRet));
+                lastRet = -1;
+            }
+        };
+    }
+
+    /**
+     * 按引用删除元素，供迭代器使用
+     */
+    private void removeEq(Object o) {
+        for (long pos = head.get(), end = tail.get(); pos < end; pos++) {
+            int idx = (int) pos & mask;
+            if (sequences.get(idx) == pos + 1 && buffer.compareAndSet(idx, (Runnable) o, TOMBSTONE)) {
+                tombstones.incrementAndGet();
+                onRemoved();
+                return;
+            }
+        }
+    }
+
+    /**
+     * 删除后释放队首的墓碑，释放了槽位时唤醒等待空位的生产者
+     */
+    private void onRemoved() {
+        if (releaseHeadTombstones() > 0)
+            signalNotFull();
+    }
+}
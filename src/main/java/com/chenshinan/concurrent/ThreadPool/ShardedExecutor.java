@@ -0,0 +1,137 @@
+package com.chenshinan.concurrent.ThreadPool;
+
+import com.google.common.hash.Hashing;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+
+/**
+ * 分片执行器：把提交分散到N个内部线程池，避免单个线程池的ctl与等待队列成为全局竞争点
+ * 带key的任务用Guava的Hashing.consistentHash路由，同一个key总是进入同一个分片，
+ * 分片数变化时只有约1/N的key需要迁移；不带key的任务随机选两个分片，放入排队任务较少的一个（power of two choices）
+ * 注意同一分片内的任务仍由多个工作者并行执行，需要按key串行时配合KeyedSerialExecutor使用
+ *
+ * @author shinan.chen
+ * @since 2026/10/16
+ */
+public class ShardedExecutor extends AbstractExecutorService {
+
+    private final ThreadPoolExecutor[] shards;
+
+    /**
+     * @param shardCount 分片数
+     * @param factory    按分片序号创建内部线程池
+     */
+    public ShardedExecutor(int shardCount, IntFunction<ThreadPoolExecutor> factory) {
+        if (factory == null)
+            throw new NullPointerException();
+        if (shardCount <= 0)
+            throw new IllegalArgumentException();
+        shards = new ThreadPoolExecutor[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            ThreadPoolExecutor shard = factory.apply(i);
+            if (shard == null)
+                throw new NullPointerException();
+            shards[i] = shard;
+        }
+    }
+
+    /**
+     * 不带key的任务，随机选两个分片，提交到排队任务较少的一个
+     */
+    @Override
+    public void execute(Runnable command) {
+        if (command == null)
+            throw new NullPointerException();
+        pickShard().execute(command);
+    }
+
+    /**
+     * 带key的任务，提交到key通过一致性哈希路由到的分片
+     */
+    public void execute(Object key, Runnable command) {
+        if (key == null || command == null)
+            throw new NullPointerException();
+        shardFor(key).execute(command);
+    }
+
+    /**
+     * 返回key路由到的分片
+     */
+    public ThreadPoolExecutor shardFor(Object key) {
+        return shards[Hashing.consistentHash(key.hashCode(), shards.length)];
+    }
+
+    private ThreadPoolExecutor pickShard() {
+        int n = shards.length;
+        if (n == 1)
+            return shards[0];
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int i = random.nextInt(n);
+        // 第二个分片与第一个不同
+        int j = random.nextInt(n - 1);
+        if (j >= i)
+            j++;
+        ThreadPoolExecutor a = shards[i], b = shards[j];
+        // 比较包括工作者本地队列与批量缓冲区在内的排队任务数，只看共享队列会低估开启工作窃取或批量拉取的分片
+        return b.getQueuedTaskCount() < a.getQueuedTaskCount() ? b : a;
+    }
+
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    public ThreadPoolExecutor getShard(int index) {
+        return shards[index];
+    }
+
+    @Override
+    public void shutdown() {
+        for (ThreadPoolExecutor shard : shards)
+            shard.shutdown();
+    }
+
+    /**
+     * 立即关闭所有分片，返回所有分片中未执行的任务
+     */
+    @Override
+    public List<Runnable> shutdownNow() {
+        List<Runnable> tasks = new ArrayList<Runnable>();
+        for (ThreadPoolExecutor shard : shards)
+            tasks.addAll(shard.shutdownNow());
+        return Collections.unmodifiableList(tasks);
+    }
+
+    @Override
+    public boolean isShutdown() {
+        for (ThreadPoolExecutor shard : shards) {
+            if (! shard.isShutdown())
+                return false;
+        }
+        return true;
+    }
+
+    @Override
+    public boolean isTerminated() {
+        for (ThreadPoolExecutor shard : shards) {
+            if (! shard.isTerminated())
+                return false;
+        }
+        return true;
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (ThreadPoolExecutor shard : shards) {
+            if (! shard.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS))
+                return false;
+        }
+        return true;
+    }
+}
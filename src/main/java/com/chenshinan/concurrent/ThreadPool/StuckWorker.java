@@ -0,0 +1,82 @@
+package com.chenshinan.concurrent.ThreadPool;
+
+/**
+ * 执行一个任务超过阈值的工作者，由StuckWorkerWatchdog检测得到
+ *
+ * @author shinan.chen
+ * @since 2026/10/16
+ */
+public final class StuckWorker {
+
+    private static final StackTraceElement[] NO_STACK_TRACE = new StackTraceElement[0];
+
+    private final Thread thread;
+    private final Runnable task;
+    private final long startNanos;
+    private final long elapsedNanos;
+    private final StackTraceElement[] stackTrace;
+
+    StuckWorker(Thread thread, Runnable task, long startNanos, long elapsedNanos) {
+        this(thread, task, startNanos, elapsedNanos, NO_STACK_TRACE);
+    }
+
+    private StuckWorker(Thread thread, Runnable task, long startNanos, long elapsedNanos, StackTraceElement[] stackTrace) {
+        this.thread = thread;
+        this.task = task;
+        this.startNanos = startNanos;
+        this.elapsedNanos = elapsedNanos;
+        this.stackTrace = stackTrace;
+    }
+
+    /**
+     * 返回带有线程栈的副本
+     */
+    StuckWorker withStackTrace(StackTraceElement[] stackTrace) {
+        return new StuckWorker(thread, task, startNanos, elapsedNanos, stackTrace);
+    }
+
+    /**
+     * 工作者线程
+     */
+    public Thread getThread() {
+        return thread;
+    }
+
+    /**
+     * 正在执行的任务
+     */
+    public Runnable getTask() {
+        return task;
+    }
+
+    /**
+     * 任务开始执行的时间，基于System.nanoTime()
+     */
+    public long getStartNanos() {
+        return startNanos;
+    }
+
+    /**
+     * 检测时任务已经执行的时间（纳秒）
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * 第一次被检测为卡住时工作者线程的栈
+     */
+    public StackTraceElement[] getStackTrace() {
+        return stackTrace.clone();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Worker ").append(thread.getName())
+                .append(" stuck for ").append(elapsedNanos / 1000000L).append("ms running ").append(task);
+        for (StackTraceElement e : stackTrace)
+            sb.append("\n\tat ").append(e);
+        return sb.toString();
+    }
+}
@@ -0,0 +1,190 @@
+package com.chenshinan.concurrent.ThreadPool;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * 卡住工作者的看门狗：定期检查线程池中执行当前任务超过threshold的工作者，采集其线程栈并通知listener
+ * 线程栈只在工作者第一次被发现卡住时采集一次（getStackTrace()需要进入安全点），之后的检查沿用该线程栈
+ * 开启补偿时，每发现一个新卡住的工作者就增加一个补偿的工作者（不超过maxCompensatingWorkers），
+ * 使线程池的吞吐量得以恢复而不是逐渐退化到maximumPoolSize后开始拒绝；
+ * 卡住的任务执行完后撤销对应的补偿，多出的工作者空闲超过keepAliveTime后退出
+ *
+ * @author shinan.chen
+ * @since 2026/10/16
+ */
+public class StuckWorkerWatchdog {
+
+    private final ThreadPoolExecutor executor;
+    private final long thresholdNanos;
+    private final long intervalNanos;
+    private final int maxCompensatingWorkers;
+    private final Consumer<? super StuckWorker> listener;
+    /**
+     * 执行检查的单线程调度器，start时创建
+     */
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * 已通知过的卡住工作者
+     */
+    private final Map<StuckKey, Flagged> flagged = new HashMap<StuckKey, Flagged>();
+    /**
+     * 最近一次检查发现的卡住工作者
+     */
+    private volatile List<StuckWorker> stuckWorkers = Collections.emptyList();
+
+    /**
+     * @param threshold              任务执行超过该时间视为卡住
+     * @param interval               检查间隔
+     * @param maxCompensatingWorkers 最多补偿的工作者数，0表示不补偿
+     * @param listener               每个新卡住的工作者通知一次
+     */
+    public StuckWorkerWatchdog(ThreadPoolExecutor executor,
+                               long threshold,
+                               long interval,
+                               TimeUnit unit,
+                               int maxCompensatingWorkers,
+                               Consumer<? super StuckWorker> listener) {
+        if (executor == null || unit == null || listener == null)
+            throw new NullPointerException();
+        if (threshold <= 0 || interval <= 0 || maxCompensatingWorkers < 0)
+            throw new IllegalArgumentException();
+        this.executor = executor;
+        this.thresholdNanos = unit.toNanos(threshold);
+        this.intervalNanos = unit.toNanos(interval);
+        this.maxCompensatingWorkers = maxCompensatingWorkers;
+        this.listener = listener;
+    }
+
+    /**
+     * 开启线程池的运行任务跟踪，并开始定期检查
+     */
+    public synchronized void start() {
+        if (scheduler != null)
+            return;
+        executor.setTrackingRunningTasks(true);
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "stuck-worker-watchdog");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(this::check, intervalNanos, intervalNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 停止检查，关闭运行任务跟踪，并撤销所有补偿
+     */
+    public synchronized void stop() {
+        if (scheduler == null)
+            return;
+        scheduler.shutdownNow();
+        scheduler = null;
+        executor.setTrackingRunningTasks(false);
+        for (Flagged f : flagged.values()) {
+            if (f.compensated)
+                executor.releaseCompensatingWorker();
+        }
+        flagged.clear();
+        stuckWorkers = Collections.emptyList();
+    }
+
+    /**
+     * 返回最近一次检查发现的卡住工作者
+     */
+    public List<StuckWorker> getStuckWorkers() {
+        return stuckWorkers;
+    }
+
+    /**
+     * 检查一次，线程池已经终止则停止检查
+     */
+    synchronized void check() {
+        if (executor.isTerminated()) {
+            stop();
+            return;
+        }
+        List<StuckWorker> stuck = executor.findStuckWorkers(thresholdNanos);
+        Map<StuckKey, StuckWorker> current = new HashMap<StuckKey, StuckWorker>();
+        for (StuckWorker sw : stuck)
+            current.put(new StuckKey(sw.getThread(), sw.getStartNanos()), sw);
+
+        // 卡住的任务已经执行完，撤销对应的补偿
+        for (Iterator<Map.Entry<StuckKey, Flagged>> it = flagged.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<StuckKey, Flagged> e = it.next();
+            if (! current.containsKey(e.getKey())) {
+                if (e.getValue().compensated)
+                    executor.releaseCompensatingWorker();
+                it.remove();
+            }
+        }
+        List<StuckWorker> result = new ArrayList<StuckWorker>(current.size());
+        for (Map.Entry<StuckKey, StuckWorker> e : current.entrySet()) {
+            Flagged f = flagged.get(e.getKey());
+            if (f != null) {
+                // 已通知过的工作者沿用第一次采集的线程栈
+                result.add(e.getValue().withStackTrace(f.stackTrace));
+                continue;
+            }
+            // 新卡住的工作者，采集线程栈，通知并补偿
+            StuckWorker sw = e.getValue().withStackTrace(e.getValue().getThread().getStackTrace());
+            boolean compensated = executor.getCompensatingWorkerCount() < maxCompensatingWorkers &&
+                    executor.addCompensatingWorker();
+            flagged.put(e.getKey(), new Flagged(compensated, sw.getStackTrace()));
+            result.add(sw);
+            try {
+                listener.accept(sw);
+            } catch (RuntimeException ignore) {
+                // listener的异常不能中断后续的定期检查
+            }
+        }
+        stuckWorkers = Collections.unmodifiableList(result);
+    }
+
+    /**
+     * 一次已通知的卡住：是否为其增加了补偿的工作者，以及第一次采集的线程栈
+     */
+    private static final class Flagged {
+        final boolean compensated;
+        final StackTraceElement[] stackTrace;
+
+        Flagged(boolean compensated, StackTraceElement[] stackTrace) {
+            this.compensated = compensated;
+            this.stackTrace = stackTrace;
+        }
+    }
+
+    /**
+     * 用工作者线程与任务开始时间标识一次卡住
+     */
+    private static final class StuckKey {
+        final Thread thread;
+        final long startNanos;
+
+        StuckKey(Thread thread, long startNanos) {
+            this.thread = thread;
+            this.startNanos = startNanos;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (! (o instanceof StuckKey))
+                return false;
+            StuckKey k = (StuckKey) o;
+            return thread == k.thread && startNanos == k.startNanos;
+        }
+
+        @Override
+        public int hashCode() {
+            return thread.hashCode() * 31 + Long.hashCode(startNanos);
+        }
+    }
+}
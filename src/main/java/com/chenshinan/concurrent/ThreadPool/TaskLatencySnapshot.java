@@ -0,0 +1,48 @@
+package com.chenshinan.concurrent.ThreadPool;
+
+/**
+ * 线程池任务耗时快照：排队时间、执行时间与拒绝次数，由各工作者的直方图合并而来
+ *
+ * @author shinan.chen
+ * @since 2026/10/16
+ */
+public final class TaskLatencySnapshot {
+
+    private final LatencySnapshot queueWait;
+    private final LatencySnapshot run;
+    private final long rejectedCount;
+
+    TaskLatencySnapshot(LatencySnapshot queueWait, LatencySnapshot run, long rejectedCount) {
+        this.queueWait = queueWait;
+        this.run = run;
+        this.rejectedCount = rejectedCount;
+    }
+
+    /**
+     * 任务从execute()到开始执行的等待时间（纳秒）
+     */
+    public LatencySnapshot getQueueWait() {
+        return queueWait;
+    }
+
+    /**
+     * 任务的执行时间（纳秒）
+     */
+    public LatencySnapshot getRun() {
+        return run;
+    }
+
+    /**
+     * 被拒绝的任务数
+     */
+    public long getRejectedCount() {
+        return rejectedCount;
+    }
+
+    @Override
+    public String toString() {
+        return "TaskLatencySnapshot[queueWait = " + queueWait +
+                ", run = " + run +
+                ", rejected = " + rejectedCount + "]";
+    }
+}
@@ -0,0 +1,34 @@
+package com.chenshinan.concurrent.ThreadPool;
+
+/**
+ * 带租户标识的任务
+ * 配合WeightedFairBlockingQueue使用时进入该租户的子队列，各租户之间按权重公平出队
+ *
+ * @author shinan.chen
+ * @since 2026/10/16
+ */
+public final class TenantTask implements Runnable {
+
+    private final Object tenant;
+    private final Runnable task;
+
+    public TenantTask(Object tenant, Runnable task) {
+        if (tenant == null || task == null)
+            throw new NullPointerException();
+        this.tenant = tenant;
+        this.task = task;
+    }
+
+    public Object getTenant() {
+        return tenant;
+    }
+
+    public Runnable getTask() {
+        return task;
+    }
+
+    @Override
+    public void run() {
+        task.run();
+    }
+}
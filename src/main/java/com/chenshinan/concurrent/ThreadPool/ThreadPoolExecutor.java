@@ -3,13 +3,19 @@ package com.chenshinan.concurrent.ThreadPool;
 import java.security.AccessControlContext;
 import java.security.AccessController;
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.locks.AbstractQueuedSynchronizer;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.IntSupplier;
 
 public class ThreadPoolExecutor extends AbstractExecutorService {
     /**
@@ -91,25 +97,30 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
      */
     private final BlockingQueue<Runnable> workQueue;
     /**
-     * 线程池的可重入锁，用来控制线程的执行与中断
+     * 线程池的可重入锁，用来串行化shutdown、shutdownNow与终止等生命周期操作
      */
     private final ReentrantLock mainLock = new ReentrantLock();
     /**
-     * 线程池中的线程工作者的集合，持有mainLock才可以访问
+     * 线程池中的线程工作者的集合，基于ConcurrentHashMap，增删与遍历都不需要持有mainLock
+     * 遍历是弱一致的：先加入集合再校验线程池状态，保证shutdown时要么能遍历到新的工作者，要么新的工作者能看到新状态
      */
-    private final HashSet<Worker> workers = new HashSet<Worker>();
+    private final Set<Worker> workers = ConcurrentHashMap.newKeySet();
+    /**
+     * 当前线程所属的本线程池工作者，不是本线程池的工作者线程则为null
+     */
+    private final ThreadLocal<Worker> currentWorker = new ThreadLocal<Worker>();
     /**
      * Wait condition to support awaitTermination
      */
     private final Condition termination = mainLock.newCondition();
     /**
-     * 线程池中达到的最大线程数，持有mainLock才可以访问
+     * 线程池中达到的最大线程数，通过CAS更新
      */
-    private int largestPoolSize;
+    private final AtomicInteger largestPoolSize = new AtomicInteger();
     /**
-     * 计数完成的任务数。仅在工作线程终止时更新。持有mainLock才可以访问
+     * 已退出工作者完成的任务数，仅在工作者退出时累加；存活工作者的完成数记录在各自的completedTasks中
      */
-    private long completedTaskCount;
+    private final LongAdder completedTaskCount = new LongAdder();
     /*
      * 多线程共用的变量，要声明为volatile
      */
@@ -137,6 +148,124 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
      * 线程最大容量数是线程池最多拥有的线程数
      */
     private volatile int maximumPoolSize;
+    /**
+     * 是否开启工作窃取模式，默认false
+     * 开启后工作者提交的任务放入自己的本地队列，空闲的工作者会从其他工作者的本地队列窃取任务
+     */
+    private volatile boolean workStealing;
+    /**
+     * 工作窃取模式下，每个工作者本地队列的最大任务数，放满后提交的任务走共享队列与拒绝策略
+     */
+    private static final int LOCAL_QUEUE_CAPACITY = 1024;
+    /**
+     * 唤醒等待窃取的工作者时，一轮扫描都没有成功认领后重新扫描的最大轮数
+     */
+    private static final int SIGNAL_STEALER_RETRIES = 4;
+    /**
+     * 工作窃取模式下，在共享队列上阻塞等待的工作者数，大于0时放入本地队列的任务会唤醒其中一个来窃取
+     */
+    private final AtomicInteger parkedStealers = new AtomicInteger();
+    /**
+     * 工作者每次从共享队列拉取任务的最大数量，默认1即每次拉取一个
+     * 大于1时，工作者拿到一个任务后会再通过drainTo一次性拉取若干任务放入自己的缓冲区，执行完缓冲区再访问共享队列
+     */
+    private volatile int taskBatchSize = 1;
+    /**
+     * 是否采样任务的提交数、完成数与执行耗时，由PoolSizingController开启，默认false
+     */
+    private volatile boolean sampling;
+    /**
+     * 采样模式下累计提交的任务数
+     */
+    private final LongAdder sampledSubmittedCount = new LongAdder();
+    /**
+     * 采样模式下累计完成的任务数
+     */
+    private final LongAdder sampledCompletedCount = new LongAdder();
+    /**
+     * 采样模式下累计的任务执行耗时（纳秒）
+     */
+    private final LongAdder sampledRunNanos = new LongAdder();
+    /**
+     * 是否开启任务耗时统计，默认false
+     * 开启后execute()会给任务打上提交时间戳，工作者把排队时间和执行时间记录到自己的直方图中
+     */
+    private volatile boolean instrumented;
+    /**
+     * 已退出工作者的排队时间直方图合并结果
+     */
+    private final LatencyHistogram retiredQueueWaitHistogram = new LatencyHistogram();
+    /**
+     * 已退出工作者的执行时间直方图合并结果
+     */
+    private final LatencyHistogram retiredRunHistogram = new LatencyHistogram();
+    /**
+     * 累计提交的任务数
+     */
+    private final LongAdder submittedTaskCount = new LongAdder();
+    /**
+     * 累计被拒绝的任务数
+     */
+    private final LongAdder rejectedTaskCount = new LongAdder();
+    /**
+     * 出队时已过期的DeadlineTask的回调，默认null即计数后直接丢弃
+     */
+    private volatile Consumer<? super DeadlineTask> expiredTaskHandler;
+    /**
+     * 出队时已过期而未执行的任务数
+     */
+    private final LongAdder expiredTaskCount = new LongAdder();
+    /**
+     * 工作者空闲策略，默认队列为空时立即阻塞
+     */
+    private volatile IdleStrategy idleStrategy = IdleStrategy.PARK;
+    /**
+     * 同时自旋等待任务的工作者数量上限，默认1，避免所有工作者一起自旋占满CPU
+     */
+    private volatile int maxSpinningWorkers = 1;
+    /**
+     * 正在自旋等待任务的工作者数量
+     */
+    private final AtomicInteger spinningWorkers = new AtomicInteger();
+    /**
+     * 有工作者在自旋时，任务放入共享队列后改变该值；自旋的工作者只读取它，看到变化才访问队列，
+     * 不会像每次自旋都poll()那样反复获取队列的锁而与提交者竞争
+     * 并发修改丢失更新也没有关系，只要值发生变化，或者自旋结束后阻塞在队列上时都能取到任务
+     */
+    private volatile int enqueueSignal;
+    private final IntSupplier enqueueSignalReader = () -> enqueueSignal;
+    /**
+     * 预热状态：WARM_UP_NONE、WARM_UP_RUNNING或WARM_UP_DONE，只有warmUp()成功完成后才是WARM_UP_DONE，isReady()才返回true
+     */
+    private final AtomicInteger warmUpState = new AtomicInteger(WARM_UP_NONE);
+    /**
+     * 是否记录各工作者正在执行的任务及其开始时间，由StuckWorkerWatchdog开启，默认false
+     */
+    private volatile boolean trackingRunningTasks;
+    /**
+     * 补偿的工作者数，核心线程数与最大线程数的上限都临时增加该值，
+     * 用来替代长时间卡在任务中的工作者，使线程池的吞吐量得以恢复
+     */
+    private final AtomicInteger compensatingWorkers = new AtomicInteger();
+    /**
+     * 是否开启积极扩容模式，默认false
+     * 开启后没有空闲工作者时，execute()优先创建非核心工作者，达到maximumPoolSize后才把任务放入等待队列
+     */
+    private volatile boolean eagerGrow;
+    /**
+     * 正在等待任务（自旋或阻塞）的工作者数，供积极扩容模式使用
+     * 不论是否开启该模式都维护，运行中开启时计数已经是准确的
+     */
+    private final AtomicInteger idleWorkers = new AtomicInteger();
+    /**
+     * 负责定期调整线程池大小的组件（PoolSizingController、CgroupCpuSizer），同一时刻只允许一个，null表示没有
+     * 多个组件各自定期调用setPoolSize()时，最后写入的一方生效，线程池大小会在它们之间来回振荡
+     */
+    private final AtomicReference<Object> poolSizeOwner = new AtomicReference<Object>();
+    /**
+     * 本线程池工作者提交或等待的任务在该工作者中直接执行的次数
+     */
+    private final LongAdder nestedInlineCount = new LongAdder();
     /**
      * 线程池 默认拒绝处理器
      */
@@ -153,15 +282,37 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
 
     private static final boolean ONLY_ONE = true;
 
+    /** 尚未预热，或者上一次预热超时、失败 */
+    private static final int WARM_UP_NONE = 0;
+    /** 正在预热 */
+    private static final int WARM_UP_RUNNING = 1;
+    /** 预热已成功完成 */
+    private static final int WARM_UP_DONE = 2;
+
+    /**
+     * managedBlock()补偿的工作者数上限，避免大量任务同时阻塞时无限创建线程
+     */
+    private static final int MAX_BLOCKING_COMPENSATION = 256;
+
+    /**
+     * 工作者提交或join()等待的任务直接在该工作者中执行的最大嵌套层数，避免不断提交自身后续任务的任务递归过深
+     */
+    private static final int MAX_INLINE_DEPTH = 8;
+
     /**
      * Class Worker主要维护线程运行任务的中断控制状态，以及其他一些记录
-     * 该类通过继承AQS简化了对锁的操作
+     * 中断控制不再使用AQS锁（每个任务lock、unlock两次CAS），而是一个volatile状态加上中断者的认领标记：
+     * 工作者切换为BUSY后检查认领标记，中断者认领后检查状态是否为IDLE，两边都是先写后读volatile，
+     * 至少有一方能看到对方的写入，因此中断空闲工作者的中断不会落到正在执行的任务上；
+     * 工作者连续取到任务时保持BUSY，只有即将等待任务时才切换为IDLE，连续执行的任务之间不需要任何状态切换
      */
-    private final class Worker
-        extends AbstractQueuedSynchronizer
-        implements Runnable
-    {
-        private static final long serialVersionUID = 6138294804551838833L;
+    private final class Worker implements Runnable {
+        /** 线程尚未开始runWorker，不允许中断 */
+        static final int NEW = -1;
+        /** 等待任务，允许中断 */
+        static final int IDLE = 0;
+        /** 正在执行或准备执行任务，不允许中断空闲工作者的中断 */
+        static final int BUSY = 1;
 
         /** 当前工作者的线程 */
         final Thread thread;
@@ -169,10 +320,29 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
         Runnable firstTask;
         /** 当前工作者完成的任务计数器 */
         volatile long completedTasks;
+        /** 工作窃取模式下的本地任务队列，自己从队尾取，其他工作者从队头窃取 */
+        final ConcurrentLinkedDeque<Runnable> localQueue = new ConcurrentLinkedDeque<Runnable>();
+        /** 本地队列中的任务数，只由自己的线程增加，ConcurrentLinkedDeque.size()需要遍历 */
+        final AtomicInteger localSize = new AtomicInteger();
+        /** 批量拉取模式下从共享队列拉取的任务缓冲区，按FIFO顺序执行，shutdownNow时也能被取出 */
+        final ConcurrentLinkedQueue<Runnable> batchQueue = new ConcurrentLinkedQueue<Runnable>();
+        /** 任务排队时间直方图，第一次记录时创建 */
+        volatile LatencyHistogram queueWaitHistogram;
+        /** 任务执行时间直方图，第一次记录时创建 */
+        volatile LatencyHistogram runHistogram;
+        /** 当前嵌套在runInline()中执行的层数，只由自己的线程读写 */
+        int inlineDepth;
+        /** 开启运行任务跟踪时，正在执行的最外层任务，空闲时为null */
+        volatile Runnable runningTask;
+        /** 开启运行任务跟踪时，正在执行的最外层任务的开始时间，没有任务时为0 */
+        volatile long runningTaskStartNanos;
+        /** 工作者状态：NEW、IDLE或BUSY，只由自己的线程写入 */
+        volatile int phase = NEW;
+        /** 中断空闲工作者时由中断者认领，防止工作者在中断过程中开始执行任务 */
+        final AtomicBoolean interruptClaim = new AtomicBoolean();
 
         Worker(Runnable firstTask) {
-            // new出来后，设置state=-1禁止中断，直到runWorker()
-            setState(-1);
+            // new出来后，phase=NEW禁止中断，直到runWorker()
             this.firstTask = firstTask;
             this.thread = getThreadFactory().newThread(this);
         }
@@ -182,37 +352,86 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
             runWorker(this);
         }
 
-        // state=0代表解锁状态
-        // state=0代表加锁状态
+        /**
+         * 切换为BUSY，若有中断者正在中断则等它完成，之后runWorker会清除这次中断
+         * 已经是BUSY时只有一次volatile读
+         */
+        void markBusy() {
+            if (phase != BUSY) {
+                phase = BUSY;
+                while (interruptClaim.get())
+                    Thread.yield();
+            }
+        }
+
+        /**
+         * 即将等待任务，切换为IDLE，允许被中断
+         */
+        void markIdle() {
+            phase = IDLE;
+        }
 
-        protected boolean isHeldExclusively() {
-            return getState() != 0;
+        /**
+         * 是否正在执行任务，尚未启动的工作者不算
+         */
+        boolean isBusy() {
+            return phase == BUSY;
         }
 
-        protected boolean tryAcquire(int unused) {
-            if (compareAndSetState(0, 1)) {
-                setExclusiveOwnerThread(Thread.currentThread());
+        /**
+         * 如果工作者空闲则中断它，认领期间工作者不能开始执行任务
+         */
+        boolean tryInterruptIfIdle() {
+            if (phase != IDLE || ! interruptClaim.compareAndSet(false, true))
+                return false;
+            try {
+                if (phase != IDLE)
+                    return false;
+                thread.interrupt();
                 return true;
+            } catch (SecurityException ignore) {
+                return false;
+            } finally {
+                interruptClaim.set(false);
             }
-            return false;
         }
 
-        protected boolean tryRelease(int unused) {
-            setExclusiveOwnerThread(null);
-            setState(0);
+        /**
+         * 从本地队列队尾取任务，由自己执行
+         */
+        Runnable pollLocalLast() {
+            Runnable r = localQueue.pollLast();
+            if (r != null)
+                localSize.decrementAndGet();
+            return r;
+        }
+
+        /**
+         * 从本地队列队头取任务，供窃取与转移
+         */
+        Runnable pollLocalFirst() {
+            Runnable r = localQueue.pollFirst();
+            if (r != null)
+                localSize.decrementAndGet();
+            return r;
+        }
+
+        /**
+         * 从本地队列移除指定任务（可能被包装）
+         */
+        boolean removeLocal(Runnable task) {
+            if (! removeTask(localQueue, task))
+                return false;
+            localSize.decrementAndGet();
             return true;
         }
 
-        public void lock()        { acquire(1); }
-        public boolean tryLock()  { return tryAcquire(1); }
-        public void unlock()      { release(1); }
-        public boolean isLocked() { return isHeldExclusively(); }
         /**
-         * 如果state>=0，则强制中断正在执行的线程
+         * 如果已经启动，则强制中断正在执行的线程
          */
         void interruptIfStarted() {
             Thread t;
-            if (getState() >= 0 && (t = thread) != null && !t.isInterrupted()) {
+            if (phase != NEW && (t = thread) != null && !t.isInterrupted()) {
                 try {
                     t.interrupt();
                 } catch (SecurityException ignore) {
@@ -221,6 +440,55 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
         }
     }
 
+    /**
+     * 开启任务耗时统计时，execute()用它包装任务并记录提交时间
+     * 执行、拒绝、remove()与shutdownNow()时都会还原为原始任务
+     */
+    private static final class TimedTask implements Runnable {
+        final Runnable task;
+        final long submitNanos;
+
+        TimedTask(Runnable task, long submitNanos) {
+            this.task = task;
+            this.submitNanos = submitNanos;
+        }
+
+        public void run() {
+            task.run();
+        }
+    }
+
+    /**
+     * 去掉TimedTask、DeadlineTask、TenantTask的包装，返回原始任务
+     */
+    private static Runnable unwrap(Runnable r) {
+        if (r instanceof TimedTask)
+            r = ((TimedTask) r).task;
+        if (r instanceof DeadlineTask)
+            r = ((DeadlineTask) r).getTask();
+        else if (r instanceof TenantTask)
+            r = ((TenantTask) r).getTask();
+        return r;
+    }
+
+    /**
+     * 若任务（可能被TimedTask包装）是DeadlineTask则返回它，否则返回null
+     */
+    static DeadlineTask deadlineTaskOf(Runnable r) {
+        if (r instanceof TimedTask)
+            r = ((TimedTask) r).task;
+        return r instanceof DeadlineTask ? (DeadlineTask) r : null;
+    }
+
+    /**
+     * 若任务（可能被TimedTask包装）是TenantTask则返回它，否则返回null
+     */
+    static TenantTask tenantTaskOf(Runnable r) {
+        if (r instanceof TimedTask)
+            r = ((TimedTask) r).task;
+        return r instanceof TenantTask ? (TenantTask) r : null;
+    }
+
     /**
      * 主工作者运行循环。反复从队列中获取任务并执行它们
      */
@@ -228,15 +496,16 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
         Thread wt = Thread.currentThread();
         Runnable task = w.firstTask;
         w.firstTask = null;
-        // 开始之前会先解锁，开始的时候再加锁，这中间就可以被中断
-        w.unlock();
+        currentWorker.set(w);
+        // 开始之前切换为空闲，允许被中断
+        w.markIdle();
         // 是否异常退出循环
         boolean completedAbruptly = true;
         try {
             // 开始循环执行任务，如果有firstTask会先执行，没有则getTask()
-            while (task != null || (task = getTask()) != null) {
-                // 获得一个任务后，给内部AQS加锁
-                w.lock();
+            while (task != null || (task = getTask(w)) != null) {
+                // 获得一个任务后，切换为忙碌状态
+                w.markBusy();
                 // 如果线程池正在停止，并且当前线程未被打断，则中断当前线程
                 if ((runStateAtLeast(ctl.get(), STOP) ||
                         (Thread.interrupted() &&
@@ -244,41 +513,156 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
                         !wt.isInterrupted())
                     wt.interrupt();
                 try {
-                    // 开始执行之前需要做的事（目前为空，留给子类实现）
-                    beforeExecute(wt, task);
-                    Throwable thrown = null;
-                    try {
-                        // 执行task的内容
-                        task.run();
-                    } catch (RuntimeException x) {
-                        thrown = x; throw x;
-                    } catch (Error x) {
-                        thrown = x; throw x;
-                    } catch (Throwable x) {
-                        thrown = x; throw new Error(x);
-                    } finally {
-                        // 完成执行之前需要做的事（目前为空，留给子类实现）
-                        afterExecute(task, thrown);
-                    }
+                    runTask(w, wt, task);
                 } finally {
                     task = null;
-                    w.completedTasks++;
-                    // 完成后给内部AQS解锁
-                    w.unlock();
                 }
             }
             // 没有异常
             completedAbruptly = false;
         } finally {
-            // 执行到这里说明getTask()返回null，说明当前线程池中不需要那么多线程来执行任务了，可以把多于corePoolSize数量的工作线程干掉
-            processWorkerExit(w, completedAbruptly);
+            currentWorker.remove();
+            try {
+                // 异常退出或者shutdownNow()时本地队列中可能还有任务，先转移出去
+                transferLocalTasks(w);
+            } finally {
+                // 执行到这里说明getTask()返回null，说明当前线程池中不需要那么多线程来执行任务了，可以把多于corePoolSize数量的工作线程干掉
+                processWorkerExit(w, completedAbruptly);
+            }
+        }
+    }
+
+    /**
+     * 在工作者w的线程wt中执行一个任务，runWorker()与runInline()共用
+     * 记录排队时间与执行时间，调用beforeExecute()、afterExecute()，任务抛出的异常在afterExecute()之后重新抛出
+     */
+    private void runTask(Worker w, Thread wt, Runnable task) {
+        // 采样模式下记录任务开始时间
+        // 带提交时间戳的任务记录排队时间，然后还原为原始任务
+        final boolean timed = task instanceof TimedTask;
+        final boolean sample = sampling;
+        final long startNanos = (sample || timed) ? System.nanoTime() : 0L;
+        if (timed)
+            queueWaitHistogram(w).record(startNanos - ((TimedTask) task).submitNanos);
+        task = unwrap(task);
+        // 记录正在执行的任务，供StuckWorkerWatchdog检测卡住的工作者
+        // 只记录最外层的任务：runInline()嵌套执行的任务不覆盖外层任务的开始时间，
+        // 否则看门狗会把仍然卡住的外层任务当作新的一次卡住，撤销其补偿后重新标记
+        final boolean tracking = trackingRunningTasks && w.inlineDepth == 0;
+        if (tracking) {
+            // 开始时间为0表示没有任务，nanoTime()恰好为0时取1
+            long now = System.nanoTime();
+            w.runningTaskStartNanos = now != 0L ? now : 1L;
+            w.runningTask = task;
+        }
+        try {
+            // 开始执行之前需要做的事（目前为空，留给子类实现）
+            beforeExecute(wt, task);
+            Throwable thrown = null;
+            try {
+                // 执行task的内容
+                task.run();
+            } catch (RuntimeException x) {
+                thrown = x; throw x;
+            } catch (Error x) {
+                thrown = x; throw x;
+            } catch (Throwable x) {
+                thrown = x; throw new Error(x);
+            } finally {
+                // 完成执行之前需要做的事（目前为空，留给子类实现）
+                afterExecute(task, thrown);
+            }
+        } finally {
+            if (tracking) {
+                w.runningTask = null;
+                w.runningTaskStartNanos = 0L;
+            }
+            // 可复用的任务在afterExecute()与运行任务记录都结束后才归还到对象池
+            if (task instanceof PooledTask)
+                ((PooledTask) task).recycle();
+            w.completedTasks++;
+            if (sample || timed) {
+                long runNanos = System.nanoTime() - startNanos;
+                if (sample) {
+                    sampledRunNanos.add(runNanos);
+                    sampledCompletedCount.increment();
+                }
+                if (timed)
+                    runHistogram(w).record(runNanos);
+            }
+        }
+    }
+
+    private static LatencyHistogram queueWaitHistogram(Worker w) {
+        LatencyHistogram h = w.queueWaitHistogram;
+        if (h == null)
+            w.queueWaitHistogram = h = new LatencyHistogram();
+        return h;
+    }
+
+    private static LatencyHistogram runHistogram(Worker w) {
+        LatencyHistogram h = w.runHistogram;
+        if (h == null)
+            w.runHistogram = h = new LatencyHistogram();
+        return h;
+    }
+
+    /**
+     * 获取任务，出队时已过期的DeadlineTask不会被执行：计数后丢弃，设置了回调时交给回调；
+     * CoDelPolicy判定过载期间排队时间超过target的任务计为削峰后直接丢弃
+     */
+    private Runnable getTask(Worker w) {
+        for (;;) {
+            Runnable r = pollTask(w);
+            if (r == null || (! discardIfExpired(r) && ! shedIfStale(r)))
+                return r;
+        }
+    }
+
+    /**
+     * 拒绝处理器为CoDelPolicy时报告出队任务的排队时间，过载期间排队时间已超过target的任务不再执行，
+     * 计为削峰后直接丢弃，返回是否已削峰
+     * 只在入队时削峰的话，开环的过载流量下积压的任务仍然全部会被执行，排队时间无法回到target以下
+     * 不交给拒绝处理器：它是提交时的约定，在工作者线程中调用时CallerRunsPolicy会照常执行任务，
+     * DiscardOldestPolicy会丢弃一个正常的任务并把过时的任务重新入队；
+     * DiscardAwareTask代表其他工作（如KeyedSerialExecutor的执行者），丢弃它会使所有者一直等待，不削峰
+     */
+    private boolean shedIfStale(Runnable r) {
+        RejectedExecutionHandler h = handler;
+        if (!(h instanceof CoDelPolicy) || !(r instanceof TimedTask))
+            return false;
+        long now = System.nanoTime();
+        boolean droppable = !(unwrap(r) instanceof DiscardAwareTask);
+        return ((CoDelPolicy) h).onDequeue(now - ((TimedTask) r).submitNanos, now, droppable);
+    }
+
+    /**
+     * 出队的任务已过期时计数并丢弃，设置了回调时交给回调，返回是否已过期
+     * 不交给拒绝处理器：在工作者线程中CallerRunsPolicy会照常执行过期的任务，
+     * DiscardOldestPolicy会丢弃一个未过期的任务并把过期的任务重新入队
+     * 回调抛出的异常交给工作者线程的UncaughtExceptionHandler，不影响工作者继续取任务
+     */
+    private boolean discardIfExpired(Runnable r) {
+        DeadlineTask t = deadlineTaskOf(r);
+        if (t == null || ! t.isExpired(System.nanoTime()))
+            return false;
+        expiredTaskCount.increment();
+        Consumer<? super DeadlineTask> h = expiredTaskHandler;
+        if (h != null) {
+            try {
+                h.accept(t);
+            } catch (Throwable x) {
+                Thread wt = Thread.currentThread();
+                wt.getUncaughtExceptionHandler().uncaughtException(wt, x);
+            }
         }
+        return true;
     }
 
     /**
      * 循环到等待队列中获取任务
      */
-    private Runnable getTask() {
+    private Runnable pollTask(Worker w) {
         // 拉取任务是否超时
         boolean timedOut = false;
 
@@ -288,34 +672,74 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
 
             // 如果runStatus=shutdown并且等待队列为空，则退出循环
             // 如果runStatus=STOP，则退出循环
-            if (rs >= SHUTDOWN && (rs >= STOP || workQueue.isEmpty())) {
+            if (rs >= SHUTDOWN && (rs >= STOP || isQueueEmpty())) {
                 decrementWorkerCount();
                 return null;
             }
+            // 缓冲区中的任务先于共享队列中的任务入队，优先执行
+            Runnable buffered = w.batchQueue.poll();
+            if (buffered != null)
+                return buffered;
             // 当前工作者数量
             int wc = workerCountOf(c);
 
+            // 补偿的工作者使核心线程数与最大线程数的上限临时增加
+            int comp = compensatingWorkers.get();
             // 是否做线程超时存活判断
-            boolean timed = allowCoreThreadTimeOut || wc > corePoolSize;
+            boolean timed = allowCoreThreadTimeOut || wc > corePoolSize + comp;
 
             // 如果工作者数量大于maximumPoolSize，则退出循环
             // 如果当前线程做超时判断并且超时了，workCount>1，且等待队列为空
             // 则减少workCount，并返回空任务，退出循环
-            if ((wc > maximumPoolSize || (timed && timedOut))
-                    && (wc > 1 || workQueue.isEmpty())) {
+            if ((wc > maximumPoolSize + comp || (timed && timedOut))
+                    && (wc > 1 || isQueueEmpty())) {
                 if (compareAndDecrementWorkerCount(c))
                     return null;
                 continue;
             }
 
+            // 刚执行完任务仍处于忙碌状态时，先不阻塞地取任务，取到则保持忙碌状态；
+            // 取不到则切换为空闲状态，再回到循环开始重新检查线程池状态，之后才能阻塞等待
+            // 取不到时多出的这次poll()紧接着就是阻塞与唤醒，相比之下可以忽略（见WorkerGateBenchmark的往返耗时）；
+            // 默认的LinkedBlockingQueue为空时poll()只读取计数，不加锁
+            if (w.phase == Worker.BUSY) {
+                Runnable r = (workStealing || !w.localQueue.isEmpty()) ?
+                        pollWithoutWait(w) : workQueue.poll();
+                if (r != null) {
+                    int batch = taskBatchSize;
+                    if (batch > 1)
+                        workQueue.drainTo(w.batchQueue, batch - 1);
+                    return r;
+                }
+                w.markIdle();
+                continue;
+            }
+
             try {
+                // 工作窃取模式下（或者关闭该模式后本地队列还有剩余任务），先取本地队列，再取共享队列，最后窃取
                 // 如果当前工作者做会做线程超时判断，则去等待队列拉取任务，等待keepAliveTime时间
                 // 如果当前工作者做不做线程超时判断，则去等待队列拉取任务，无限期等待，直到有任务
-                Runnable r = timed ?
-                        workQueue.poll(keepAliveTime, TimeUnit.NANOSECONDS) :
-                        workQueue.take();
-                if (r != null)
+                // 阻塞之前，按空闲策略先自旋轮询一段时间
+                // 等待期间计入空闲工作者
+                Runnable r;
+                idleWorkers.incrementAndGet();
+                try {
+                    if (workStealing || !w.localQueue.isEmpty())
+                        r = pollOrSteal(w, timed);
+                    else if ((r = spinForTask()) == null)
+                        r = timed ?
+                            workQueue.poll(keepAliveTime, TimeUnit.NANOSECONDS) :
+                            workQueue.take();
+                } finally {
+                    idleWorkers.decrementAndGet();
+                }
+                if (r != null) {
+                    // 批量拉取模式下，再一次性拉取后续任务到缓冲区
+                    int batch = taskBatchSize;
+                    if (batch > 1)
+                        workQueue.drainTo(w.batchQueue, batch - 1);
                     return r;
+                }
                 timedOut = true;
             } catch (InterruptedException retry) {
                 timedOut = false;
@@ -324,23 +748,194 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
     }
 
     /**
-     * 处理工作者的退出
+     * 按空闲策略自旋轮询共享队列，自旋的工作者数量已达上限则直接返回null
      */
-    private void processWorkerExit(Worker w, boolean completedAbruptly) {
-        // 如果工作者由于异常退出，则手动减少workCount
-        if (completedAbruptly)
-            decrementWorkerCount();
+    private Runnable spinForTask() {
+        IdleStrategy strategy = idleStrategy;
+        if (strategy.isPark())
+            return null;
+        for (;;) {
+            int n = spinningWorkers.get();
+            if (n >= maxSpinningWorkers)
+                return null;
+            if (spinningWorkers.compareAndSet(n, n + 1))
+                break;
+        }
+        try {
+            return strategy.idle(workQueue, enqueueSignalReader);
+        } finally {
+            spinningWorkers.decrementAndGet();
+        }
+    }
+
+    /**
+     * 任务放入共享队列后调用，有工作者在自旋时通知它们去取任务
+     * 与spinForTask()先登记自旋再poll()配对，两边至少有一方能看到对方，不会错过任务
+     */
+    private void signalSpinners() {
+        if (spinningWorkers.get() > 0)
+            enqueueSignal++;
+    }
+
+    /**
+     * 工作窃取模式下获取任务：先取自己本地队列的队尾，再取共享队列，再从其他工作者本地队列的队头窃取
+     * 都没有任务时登记为等待窃取的工作者并在共享队列上阻塞，超过keepAliveTime返回null；
+     * 其他工作者向本地队列放入任务时会中断一个空闲工作者，使其重新扫描，不需要定时轮询
+     */
+    private Runnable pollOrSteal(Worker w, boolean timed) throws InterruptedException {
+        Runnable r;
+        if ((r = pollWithoutWait(w)) != null)
+            return r;
+        parkedStealers.incrementAndGet();
+        try {
+            // 先登记再扫描一次，与offerToLocalQueue()先放入任务再检查登记配对，两边至少有一方能看到对方，不会错过任务
+            if ((r = pollWithoutWait(w)) != null)
+                return r;
+            return timed ?
+                    workQueue.poll(keepAliveTime, TimeUnit.NANOSECONDS) :
+                    workQueue.take();
+        } finally {
+            parkedStealers.decrementAndGet();
+        }
+    }
+
+    /**
+     * 工作窃取模式下不阻塞地获取任务：本地队列队尾、共享队列、窃取
+     */
+    private Runnable pollWithoutWait(Worker w) {
+        Runnable r;
+        if ((r = w.pollLocalLast()) != null ||
+                (r = workQueue.poll()) != null)
+            return r;
+        return trySteal(w);
+    }
+
+    /**
+     * 遍历其他工作者，窃取其本地队列队头（最早提交）的任务
+     */
+    private Runnable trySteal(Worker w) {
+        for (Worker victim : workers) {
+            Runnable r;
+            if (victim != w &&
+                    ((r = victim.pollLocalFirst()) != null ||
+                            (r = victim.batchQueue.poll()) != null))
+                return r;
+        }
+        return null;
+    }
+
+    /**
+     * 共享队列与所有工作者本地队列、缓冲区是否都为空
+     */
+    private boolean isQueueEmpty() {
+        if (!workQueue.isEmpty())
+            return false;
+        for (Worker w : workers) {
+            if (!w.localQueue.isEmpty() || !w.batchQueue.isEmpty())
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * 若当前线程是本线程池的工作者，则把任务放入它的本地队列
+     * 本地队列的任务数达到LOCAL_QUEUE_CAPACITY或共享队列的剩余容量时返回false，由调用方按共享队列与拒绝策略处理，
+     * 这样有界的共享队列在工作窃取模式下仍然会拒绝任务
+     * 放入后若线程池已不在运行，则移除任务并拒绝；若工作者数量不足corePoolSize，则添加一个空的工作者来窃取任务；
+     * 有工作者在共享队列上等待时，中断其中一个使其来窃取
+     */
+    private boolean offerToLocalQueue(Runnable command) {
+        Worker w = currentWorker.get();
+        if (w == null)
+            return false;
+        int n = w.localSize.get();
+        if (n >= LOCAL_QUEUE_CAPACITY || n >= workQueue.remainingCapacity())
+            return false;
+        w.localSize.incrementAndGet();
+        w.localQueue.addLast(command);
+        int recheck = ctl.get();
+        if (! isRunning(recheck) && w.localQueue.removeLastOccurrence(command)) {
+            w.localSize.decrementAndGet();
+            reject(command);
+        } else if (workerCountOf(recheck) < corePoolSize)
+            addWorker(null, true);
+        else if (parkedStealers.get() > 0)
+            signalStealer(w);
+        return true;
+    }
+
+    /**
+     * 中断一个空闲的工作者，使其从pollOrSteal()的阻塞中返回并重新扫描各本地队列
+     * 已经被中断、尚未醒来的工作者跳过，使连续放入的任务依次唤醒不同的工作者；
+     * 认领失败（其他线程正在中断它，或者它刚开始执行任务）时继续尝试下一个工作者，
+     * 一轮都没有成功而仍有等待窃取的工作者时，让出CPU后重新扫描，最多SIGNAL_STEALER_RETRIES轮，
+     * 否则任务可能一直留在本地队列中，直到所有者执行完当前任务
+     */
+    private void signalStealer(Worker self) {
+        for (int i = 0; i < SIGNAL_STEALER_RETRIES && parkedStealers.get() > 0; i++) {
+            for (Worker w : workers) {
+                if (w != self && !w.thread.isInterrupted() && w.tryInterruptIfIdle())
+                    return;
+            }
+            Thread.yield();
+        }
+    }
 
+    /**
+     * 工作者退出时处理本地队列、缓冲区中剩余的任务，通常只有任务抛出异常导致的退出才会有剩余：
+     * 线程池未STOP时转移到共享队列，共享队列已满则交给拒绝策略；
+     * 已经STOP时，shutdownNow()在进入STOP的同时（mainLock内）已经取出了所有本地队列与缓冲区的任务并返回，
+     * 这里剩下的只可能是之后与它竞争而漏掉的任务，此时已没有人会执行或取回它们，与STOP之后提交的任务一样交给拒绝策略
+     */
+    private void transferLocalTasks(Worker w) {
+        if (w.localQueue.isEmpty() && w.batchQueue.isEmpty())
+            return;
+        List<Runnable> refused = null;
         final ReentrantLock mainLock = this.mainLock;
-        // 操作工作者集合，需要锁
         mainLock.lock();
         try {
-            // 计算线程池完成任务数，并移除工作者
-            completedTaskCount += w.completedTasks;
-            workers.remove(w);
+            boolean stopped = runStateAtLeast(ctl.get(), STOP);
+            Runnable r;
+            while ((r = w.batchQueue.poll()) != null ||
+                    (r = w.pollLocalFirst()) != null) {
+                if (! stopped && workQueue.offer(r))
+                    signalSpinners();
+                else {
+                    if (refused == null)
+                        refused = new ArrayList<Runnable>();
+                    refused.add(r);
+                }
+            }
         } finally {
             mainLock.unlock();
         }
+        // 不在mainLock内调用拒绝策略；AbortPolicy在工作者线程中抛出的异常没有调用方接收，忽略并继续处理剩余任务
+        if (refused != null) {
+            for (Runnable r : refused) {
+                try {
+                    reject(r);
+                } catch (RejectedExecutionException ignore) {
+                }
+            }
+        }
+    }
+
+    /**
+     * 处理工作者的退出
+     */
+    private void processWorkerExit(Worker w, boolean completedAbruptly) {
+        // 如果工作者由于异常退出，则手动减少workCount
+        if (completedAbruptly)
+            decrementWorkerCount();
+
+        // 计算线程池完成任务数，并移除工作者
+        completedTaskCount.add(w.completedTasks);
+        workers.remove(w);
+        // 合并该工作者的耗时直方图
+        if (w.queueWaitHistogram != null)
+            retiredQueueWaitHistogram.add(w.queueWaitHistogram);
+        if (w.runHistogram != null)
+            retiredRunHistogram.add(w.runHistogram);
         // 尝试转换状态到TERMINATED
         tryTerminate();
 
@@ -352,7 +947,7 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
             // 如果不允许核心线程回收的话，如果workerCount>corePoolSize，则返回，否则，保留corePoolSize个worker
             if (!completedAbruptly) {
                 int min = allowCoreThreadTimeOut ? 0 : corePoolSize;
-                if (min == 0 && ! workQueue.isEmpty())
+                if (min == 0 && ! isQueueEmpty())
                     min = 1;
                 if (workerCountOf(c) >= min)
                     return; // replacement not needed
@@ -396,28 +991,311 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
     public void execute(Runnable command) {
         if (command == null)
             throw new NullPointerException();
+        if ((command = admit(command)) == null)
+            return;
 
-        // 若workCount小于corePoolSize，则添加该任务的工作者（若成功则返回，失败进入下一步）
+        // 工作窃取模式下，由本线程池工作者提交的任务放入该工作者的本地队列
+        if (workStealing && isRunning(ctl.get()) && offerToLocalQueue(command))
+            return;
+
+        // 仍无法执行时，由本线程池工作者提交的任务在该工作者中直接执行，否则拒绝
+        if (!addWorkerOrEnqueue(command) && !tryRunInline(command))
+            reject(command);
+    }
+
+    /**
+     * 与execute()相同的提交流程，但任务不会被接受时不调用拒绝策略，而是返回false，由调用方处理未被接受的任务
+     * 任务总是交给新的工作者或放入共享队列，不进入当前工作者的本地队列，也不会在当前工作者中直接执行；
+     * 拒绝处理器为CoDelPolicy时，被削峰的任务同样返回false
+     */
+    boolean tryExecute(Runnable command) {
+        if (command == null)
+            throw new NullPointerException();
+        return (command = tryAdmit(command)) != null && addWorkerOrEnqueue(command);
+    }
+
+    /**
+     * 按execute()的顺序尝试接受任务：工作者不足corePoolSize时创建核心工作者，积极扩容模式下创建非核心工作者，
+     * 然后放入等待队列，队列已满时创建非核心工作者；都失败或者入队后发现线程池已关闭并移除了任务，返回false
+     */
+    private boolean addWorkerOrEnqueue(Runnable command) {
         int c = ctl.get();
+        // 若workCount小于corePoolSize，则添加该任务的工作者（若成功则返回，失败进入下一步）
         if (workerCountOf(c) < corePoolSize) {
             if (addWorker(command, true))
-                return;
+                return true;
             c = ctl.get();
         }
-        // 若线程正在执行，则把任务加到等待队列中
+        // 积极扩容模式下，没有空闲工作者时先创建非核心工作者执行该任务
+        if (eagerGrow && isRunning(c) && idleWorkers.get() == 0) {
+            if (addWorker(command, false))
+                return true;
+            c = ctl.get();
+        }
+        // 若线程正在执行，则把任务加到等待队列中
         if (isRunning(c) && workQueue.offer(command)) {
+            signalSpinners();
             // 重新获取当前状态进行判断
-            // 如果线程池非运行状态了，则移除等待队列中的任务，并tryTerminate，移除成功后调用拒绝策略
+            // 如果线程池非运行状态了，则移除等待队列中的任务，并tryTerminate，移除成功后返回false
             // 如果线程池在运行，并且workerCount=0，则创建一个空的工作者
             int recheck = ctl.get();
             if (! isRunning(recheck) && remove(command))
-                reject(command);
-            else if (workerCountOf(recheck) == 0)
+                return false;
+            if (workerCountOf(recheck) == 0)
                 addWorker(null, false);
+            return true;
+        }
+        // 如果加入队列失败，则创建工作者去执行，用非核心线程
+        return addWorker(command, false);
+    }
+
+    /**
+     * 线程池已经饱和（队列已满且无法创建工作者）时的最后手段：
+     * 由本线程池工作者提交的任务直接在该工作者中执行，避免父任务等待无法入队的子任务而导致线程池死锁，
+     * 也不会像CallerRunsPolicy那样在非工作者线程中执行；嵌套层数达到上限或线程池不在运行时返回false
+     */
+    private boolean tryRunInline(Runnable command) {
+        Worker self = currentWorker.get();
+        if (self == null || self.inlineDepth >= MAX_INLINE_DEPTH || ! isRunning(ctl.get()))
+            return false;
+        runInline(self, command);
+        return true;
+    }
+
+    /**
+     * 在工作者w的线程中直接执行任务，与runWorker()一样经过beforeExecute()、afterExecute()与各项统计
+     * 任务抛出的异常交给线程的UncaughtExceptionHandler，不传播给提交或等待它的外层任务
+     */
+    private void runInline(Worker w, Runnable command) {
+        nestedInlineCount.increment();
+        w.inlineDepth++;
+        Thread wt = w.thread;
+        try {
+            runTask(w, wt, command);
+        } catch (Throwable x) {
+            wt.getUncaughtExceptionHandler().uncaughtException(wt, x);
+        } finally {
+            w.inlineDepth--;
+        }
+    }
+
+    /**
+     * 等待future完成并返回结果
+     * 由本线程池工作者调用时，等待期间帮助执行任务：future本身还在队列中则取出直接执行，
+     * 否则依次执行本地队列、批量缓冲区与共享队列中的任务，没有可执行的任务时才阻塞等待，
+     * 这样等待子任务的父任务不会占着工作者空等，避免线程池死锁
+     * 帮助执行的任务与提交时直接执行的任务共用嵌套层数上限，达到上限后只阻塞等待；已过期、需要削峰的任务与getTask()一样处理
+     */
+    public <T> T join(Future<T> future) throws InterruptedException, ExecutionException {
+        if (future == null)
+            throw new NullPointerException();
+        Worker w = currentWorker.get();
+        if (w != null && w.inlineDepth < MAX_INLINE_DEPTH && ! future.isDone()) {
+            if (future instanceof Runnable && remove((Runnable) future))
+                runInline(w, (Runnable) future);
+            Runnable t;
+            while (! future.isDone() && (t = pollHelpTask(w)) != null) {
+                if (! discardIfExpired(t) && ! shedIfStale(t))
+                    runInline(w, t);
+            }
         }
-        // 如果加入队列失败，则创建工作者去执行，用非核心线程，否则拒绝
-        else if (!addWorker(command, false))
+        return future.get();
+    }
+
+    /**
+     * 取出一个可以帮助执行的任务
+     */
+    private Runnable pollHelpTask(Worker w) {
+        Runnable t;
+        if ((t = w.pollLocalLast()) != null ||
+                (t = w.batchQueue.poll()) != null)
+            return t;
+        return workQueue.poll();
+    }
+
+    /**
+     * 返回本线程池工作者提交或等待的任务在该工作者中直接执行的次数
+     */
+    public long getNestedInlineCount() {
+        return nestedInlineCount.sum();
+    }
+
+    /**
+     * 任务提交前的统计与包装
+     * 拒绝处理器为CoDelPolicy时，根据排队时间判断是否过载，过载时按控制律快速拒绝，返回null
+     */
+    private Runnable admit(Runnable command) {
+        Runnable task = tryAdmit(command);
+        if (task == null)
             reject(command);
+        return task;
+    }
+
+    /**
+     * 与admit()相同，但被削峰时不调用拒绝策略，只返回null
+     */
+    private Runnable tryAdmit(Runnable command) {
+        submittedTaskCount.increment();
+        if (sampling)
+            sampledSubmittedCount.increment();
+        RejectedExecutionHandler h = handler;
+        boolean coDel = h instanceof CoDelPolicy;
+        if (instrumented || coDel) {
+            long now = System.nanoTime();
+            if (coDel && !((CoDelPolicy) h).admit(now))
+                return null;
+            command = new TimedTask(command, now);
+        }
+        return command;
+    }
+
+    /**
+     * 批量提交任务，相比循环调用execute()：
+     * 只读取一次ctl，先按需启动核心工作者（每个新工作者直接带走一个任务），其余任务一次性入队，
+     * workQueue实现了BulkBlockingQueue时只加一次锁，并只唤醒与入队数量相当的空闲工作者；
+     * 队列放不下的任务尝试由非核心工作者执行，仍无法执行的任务与execute()一样，
+     * 由本线程池工作者提交时在该工作者中直接执行，否则交给拒绝策略
+     * 任何一个任务为null时抛出NullPointerException，此时不会提交任何任务
+     */
+    public void executeAll(Collection<? extends Runnable> tasks) {
+        if (tasks == null)
+            throw new NullPointerException();
+        for (Runnable r : tasks) {
+            if (r == null)
+                throw new NullPointerException();
+        }
+        List<Runnable> batch = new ArrayList<Runnable>(tasks.size());
+        for (Runnable r : tasks) {
+            Runnable command = admit(r);
+            if (command != null)
+                batch.add(command);
+        }
+        int size = batch.size();
+        if (size == 0)
+            return;
+
+        int c = ctl.get();
+        if (! isRunning(c)) {
+            for (Runnable command : batch)
+                reject(command);
+            return;
+        }
+        // 工作窃取模式下，由本线程池工作者提交的任务放入该工作者的本地队列，放不下的按普通方式提交
+        if (workStealing && currentWorker.get() != null) {
+            List<Runnable> refused = new ArrayList<Runnable>();
+            for (Runnable command : batch) {
+                if (! offerToLocalQueue(command))
+                    refused.add(command);
+            }
+            if ((size = refused.size()) == 0)
+                return;
+            batch = refused;
+            c = ctl.get();
+        }
+
+        int i = 0;
+        while (i < size && workerCountOf(c) < corePoolSize && addWorker(batch.get(i), true)) {
+            i++;
+            c = ctl.get();
+        }
+        // 积极扩容模式下，没有空闲工作者时先创建非核心工作者
+        if (eagerGrow) {
+            while (i < size && idleWorkers.get() == 0 && addWorker(batch.get(i), false))
+                i++;
+        }
+        if (i == size)
+            return;
+
+        List<Runnable> rest = batch.subList(i, size);
+        int accepted = offerAll(rest);
+        if (accepted > 0) {
+            signalSpinners();
+            // 与execute()相同的重新检查
+            int recheck = ctl.get();
+            if (! isRunning(recheck)) {
+                for (Runnable command : rest.subList(0, accepted)) {
+                    if (remove(command))
+                        reject(command);
+                }
+            } else if (workerCountOf(recheck) == 0)
+                addWorker(null, false);
+        }
+        for (i += accepted; i < size; i++) {
+            Runnable command = batch.get(i);
+            if (! addWorker(command, false) && ! tryRunInline(command))
+                reject(command);
+        }
+    }
+
+    /**
+     * 将任务按顺序放入等待队列，返回入队成功的个数
+     */
+    private int offerAll(List<Runnable> tasks) {
+        BlockingQueue<Runnable> q = workQueue;
+        if (q instanceof BulkBlockingQueue)
+            return ((BulkBlockingQueue<Runnable>) q).offerAll(tasks);
+        int n = 0;
+        for (Runnable command : tasks) {
+            if (! q.offer(command))
+                break;
+            n++;
+        }
+        return n;
+    }
+
+    /**
+     * 提交一个带截止时间的任务，截止时间为当前时间加上timeout
+     * 等待队列使用DeadlineBlockingQueue时按截止时间最早优先执行；出队时已过期的任务不会被执行
+     * timeout的绝对值超过约36年时按36年计算，避免截止时间溢出后排序错乱
+     */
+    public void execute(Runnable command, long timeout, TimeUnit unit) {
+        if (command == null || unit == null)
+            throw new NullPointerException();
+        long nanos = Math.max(-DeadlineBlockingQueue.NO_DEADLINE_NANOS,
+                Math.min(unit.toNanos(timeout), DeadlineBlockingQueue.NO_DEADLINE_NANOS));
+        execute(new DeadlineTask(command, System.nanoTime() + nanos));
+    }
+
+    /**
+     * 提交一个有返回值的任务，返回的AsyncTask既是放入队列的任务，也是该任务的CompletableFuture，
+     * 可以直接注册非阻塞的回调；任务被拒绝时，与submit()一样由拒绝策略决定是否抛出RejectedExecutionException
+     */
+    public <T> AsyncTask<T> submitAsync(Callable<T> task) {
+        if (task == null)
+            throw new NullPointerException();
+        AsyncTask<T> f = new AsyncTask<T>(task);
+        execute(f);
+        return f;
+    }
+
+    /**
+     * 提交一个无返回值的任务，完成时返回的AsyncTask以null完成
+     */
+    public AsyncTask<Void> submitAsync(Runnable task) {
+        if (task == null)
+            throw new NullPointerException();
+        AsyncTask<Void> f = new AsyncTask<Void>(task);
+        execute(f);
+        return f;
+    }
+
+    /**
+     * 提交一个不关心结果的任务，对arg执行action
+     * 使用对象池中可复用的任务对象携带action与arg，调用方传入无捕获的action（如方法引用）时，提交不分配对象
+     * 任务被拒绝时，拒绝策略收到的是该可复用的任务对象
+     */
+    public <T> void executePooled(Consumer<? super T> action, T arg) {
+        if (action == null)
+            throw new NullPointerException();
+        execute(PooledTask.obtain(action, arg));
+    }
+
+    /**
+     * 提交一个属于tenant的任务
+     * 等待队列使用WeightedFairBlockingQueue时进入该租户的子队列，按租户权重公平出队
+     */
+    public void execute(Object tenant, Runnable command) {
+        execute(new TenantTask(tenant, command));
     }
 
     /**
@@ -438,14 +1316,14 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
             if (rs >= SHUTDOWN &&
                     ! (rs == SHUTDOWN &&
                             firstTask == null &&
-                            ! workQueue.isEmpty()))
+                            ! isQueueEmpty()))
                 return false;
 
             for (;;) {
                 // 判断线程池工作线程数是否超过容量，返回false
                 int wc = workerCountOf(c);
                 if (wc >= CAPACITY ||
-                        wc >= (core ? corePoolSize : maximumPoolSize))
+                        wc >= (core ? corePoolSize : maximumPoolSize) + compensatingWorkers.get())
                     return false;
                 // CAS增加workCount，成功跳出最外层循环
                 if (compareAndIncrementWorkerCount(c))
@@ -464,27 +1342,17 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
             w = new Worker(firstTask);
             final Thread t = w.thread;
             if (t != null) {
-                // 获得线程池可重入锁，加锁，操作工作集合需要加锁
-                final ReentrantLock mainLock = this.mainLock;
-                mainLock.lock();
-                try {
-                    // 重新校验线程池状态，避免获取锁后线程池被shutdown
-                    int rs = runStateOf(ctl.get());
-
-                    if (rs < SHUTDOWN ||
-                            (rs == SHUTDOWN && firstTask == null)) {
-                        // 预检查t是否可启动
-                        if (t.isAlive())
-                            throw new IllegalThreadStateException();
-                        // 加入线程池工作集合，更新largestPoolSize，workerAdded=true
-                        workers.add(w);
-                        int s = workers.size();
-                        if (s > largestPoolSize)
-                            largestPoolSize = s;
-                        workerAdded = true;
-                    }
-                } finally {
-                    mainLock.unlock();
+                // 预检查t是否可启动
+                if (t.isAlive())
+                    throw new IllegalThreadStateException();
+                // 先加入线程池工作集合，再重新校验线程池状态，避免加入的同时线程池被shutdown
+                workers.add(w);
+                int rs = runStateOf(ctl.get());
+                if (rs < SHUTDOWN ||
+                        (rs == SHUTDOWN && firstTask == null)) {
+                    // 更新largestPoolSize，workerAdded=true
+                    updateLargestPoolSize(workers.size());
+                    workerAdded = true;
                 }
                 // 如果工作者成功加入工作集合，则启动该工作者的线程
                 if (workerAdded) {
@@ -506,16 +1374,19 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
      * 尝试转换状态到TERMINATED
      */
     private void addWorkerFailed(Worker w) {
-        //  获得线程池可重入锁，加锁，操作工作集合需要加锁
-        final ReentrantLock mainLock = this.mainLock;
-        mainLock.lock();
-        try {
-            if (w != null)
-                workers.remove(w);
-            decrementWorkerCount();
-            tryTerminate();
-        } finally {
-            mainLock.unlock();
+        if (w != null)
+            workers.remove(w);
+        decrementWorkerCount();
+        tryTerminate();
+    }
+
+    /**
+     * 通过CAS把largestPoolSize更新为更大的值
+     */
+    private void updateLargestPoolSize(int size) {
+        int largest;
+        while (size > (largest = largestPoolSize.get()) &&
+                !largestPoolSize.compareAndSet(largest, size)) {
         }
     }
 
@@ -523,13 +1394,46 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
      * 如果执行器存在该任务，则将其从执行器的内部队列中移除
      */
     public boolean remove(Runnable task) {
-        boolean removed = workQueue.remove(task);
+        boolean removed = removeTask(workQueue, task);
+        for (Worker w : workers) {
+            if (removed)
+                break;
+            removed = removeTask(w.batchQueue, task) ||
+                    w.removeLocal(task);
+        }
         tryTerminate(); // In case SHUTDOWN and now empty
         return removed;
     }
 
+    /**
+     * 从队列中移除任务，任务可能被包装成了TimedTask或DeadlineTask
+     */
+    private static boolean removeTask(Collection<Runnable> q, Runnable task) {
+        if (q.remove(task))
+            return true;
+        for (Runnable r : q) {
+            if (r != task && unwrap(r) == task)
+                return q.remove(r);
+        }
+        return false;
+    }
+
     final void reject(Runnable command) {
-        handler.rejectedExecution(command, this);
+        rejectedTaskCount.increment();
+        handler.rejectedExecution(unwrap(command), this);
+    }
+
+    /**
+     * 已被接受的任务r未执行就从等待队列中丢弃时调用，r是DiscardAwareTask时通知其所有者
+     * DiscardOldestPolicy会调用它；自定义的拒绝策略从getQueue()中取出并丢弃任务时也应调用，
+     * 否则被丢弃的KeyedSerialExecutor执行者、HashedWheelScheduler定时任务的所有者会一直等待
+     */
+    public void discard(Runnable r) {
+        if (r == null)
+            throw new NullPointerException();
+        r = unwrap(r);
+        if (r instanceof DiscardAwareTask)
+            ((DiscardAwareTask) r).onDiscard();
     }
 
     /**
@@ -542,7 +1446,7 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
             // 线程池还在运行 或 线程池已经终止 或 线程池SHUTDOWN，工作列表不为空时，放弃转换
             if (isRunning(c) ||
                 runStateAtLeast(c, TIDYING) ||
-                (runStateOf(c) == SHUTDOWN && ! workQueue.isEmpty()))
+                (runStateOf(c) == SHUTDOWN && ! isQueueEmpty()))
                 return;
             // 如果workerCount不为0，则中断可能正在等待任务的线程（一个）
             if (workerCountOf(c) != 0) {
@@ -573,28 +1477,17 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
 
     /**
      * 中断可能正在等待任务的线程，以便检查终止或配置更改
-     * 注意，此处忽略无法获得到锁的线程，这些线程后续完成后会自己退出
+     * 注意，此处忽略phase不是IDLE或者认领失败的工作者，它们执行完当前任务后回到getTask()时会重新检查状态
      */
     private void interruptIdleWorkers(boolean onlyOne) {
-        final ReentrantLock mainLock = this.mainLock;
-        mainLock.lock();
-        try {
-            for (Worker w : workers) {
-                Thread t = w.thread;
-                // 尝试获取工作者内部AQS锁，如果获取到则可以中断，否则忽略等它执行完
-                if (!t.isInterrupted() && w.tryLock()) {
-                    try {
-                        t.interrupt();
-                    } catch (SecurityException ignore) {
-                    } finally {
-                        w.unlock();
-                    }
-                }
-                if (onlyOne)
-                    break;
-            }
-        } finally {
-            mainLock.unlock();
+        for (Worker w : workers) {
+            Thread t = w.thread;
+            // 认领interruptClaim后确认phase仍为IDLE才中断；工作者切换为BUSY后会等待认领释放，
+            // 所以中断不会落到正在执行的任务上，正在执行任务的工作者忽略，等它执行完
+            if (!t.isInterrupted())
+                w.tryInterruptIfIdle();
+            if (onlyOne)
+                break;
         }
     }
 
@@ -634,14 +1527,8 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
         SecurityManager security = System.getSecurityManager();
         if (security != null) {
             security.checkPermission(shutdownPerm);
-            final ReentrantLock mainLock = this.mainLock;
-            mainLock.lock();
-            try {
-                for (Worker w : workers)
-                    security.checkAccess(w.thread);
-            } finally {
-                mainLock.unlock();
-            }
+            for (Worker w : workers)
+                security.checkAccess(w.thread);
         }
     }
 
@@ -691,14 +1578,8 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
      * 强制中断所有线程，即使处于活动状态也是如此
      */
     private void interruptWorkers() {
-        final ReentrantLock mainLock = this.mainLock;
-        mainLock.lock();
-        try {
-            for (Worker w : workers)
-                w.interruptIfStarted();
-        } finally {
-            mainLock.unlock();
-        }
+        for (Worker w : workers)
+            w.interruptIfStarted();
     }
 
     /**
@@ -710,12 +1591,22 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
         BlockingQueue<Runnable> q = workQueue;
         ArrayList<Runnable> taskList = new ArrayList<Runnable>();
         q.drainTo(taskList);
+        // 工作者缓冲区、本地队列中的任务也一并取出
+        for (Worker w : workers) {
+            Runnable r;
+            while ((r = w.batchQueue.poll()) != null ||
+                    (r = w.pollLocalFirst()) != null)
+                taskList.add(r);
+        }
         if (!q.isEmpty()) {
             for (Runnable r : q.toArray(new Runnable[0])) {
                 if (q.remove(r))
                     taskList.add(r);
             }
         }
+        // 还原被包装的任务
+        for (int i = 0; i < taskList.size(); i++)
+            taskList.set(i, unwrap(taskList.get(i)));
         return taskList;
     }
 
@@ -727,6 +1618,567 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
         return threadFactory;
     }
 
+    /**
+     * 设置拒绝处理器
+     */
+    public void setRejectedExecutionHandler(RejectedExecutionHandler handler) {
+        if (handler == null)
+            throw new NullPointerException();
+        this.handler = handler;
+    }
+
+    public RejectedExecutionHandler getRejectedExecutionHandler() {
+        return handler;
+    }
+
+    /**
+     * 设置核心线程数
+     * 变大时，若等待队列中有任务，立即启动新的工作者去执行；变小时，中断空闲的工作者，多出的工作者空闲超过keepAliveTime后退出
+     */
+    public void setCorePoolSize(int corePoolSize) {
+        if (corePoolSize < 0 || maximumPoolSize < corePoolSize)
+            throw new IllegalArgumentException();
+        int delta = corePoolSize - this.corePoolSize;
+        this.corePoolSize = corePoolSize;
+        if (workerCountOf(ctl.get()) > corePoolSize)
+            interruptIdleWorkers();
+        else if (delta > 0) {
+            // 新增的工作者数量不超过等待队列中的任务数，队列为空时停止
+            int k = Math.min(delta, workQueue.size());
+            while (k-- > 0 && addWorker(null, true)) {
+                if (workQueue.isEmpty())
+                    break;
+            }
+        }
+    }
+
+    public int getCorePoolSize() {
+        return corePoolSize;
+    }
+
+    /**
+     * 设置核心线程是否允许超时，开启后中断空闲的工作者，使其按keepAliveTime重新等待
+     */
+    public void allowCoreThreadTimeOut(boolean value) {
+        if (value && keepAliveTime <= 0)
+            throw new IllegalArgumentException("Core threads must have nonzero keep alive times");
+        if (value != allowCoreThreadTimeOut) {
+            allowCoreThreadTimeOut = value;
+            if (value)
+                interruptIdleWorkers();
+        }
+    }
+
+    public boolean allowsCoreThreadTimeOut() {
+        return allowCoreThreadTimeOut;
+    }
+
+    /**
+     * 设置最大线程数，变小时中断空闲的工作者，多出的工作者在获取任务时退出
+     */
+    public void setMaximumPoolSize(int maximumPoolSize) {
+        if (maximumPoolSize <= 0 || maximumPoolSize < corePoolSize)
+            throw new IllegalArgumentException();
+        this.maximumPoolSize = maximumPoolSize;
+        if (workerCountOf(ctl.get()) > maximumPoolSize)
+            interruptIdleWorkers();
+    }
+
+    public int getMaximumPoolSize() {
+        return maximumPoolSize;
+    }
+
+    /**
+     * 登记为定期调整线程池大小的组件，同一个组件重复登记没有影响
+     * 已经由其他组件登记时抛出IllegalStateException，一个线程池只能由一个组件调整大小
+     */
+    public void claimPoolSizeOwnership(Object owner) {
+        if (owner == null)
+            throw new NullPointerException();
+        Object current;
+        if (! poolSizeOwner.compareAndSet(null, owner) && (current = poolSizeOwner.get()) != owner)
+            throw new IllegalStateException("pool size is already managed by " + current);
+    }
+
+    /**
+     * 取消登记，owner不是当前登记的组件时没有影响
+     */
+    public void releasePoolSizeOwnership(Object owner) {
+        poolSizeOwner.compareAndSet(owner, null);
+    }
+
+    /**
+     * 返回当前登记的调整线程池大小的组件，没有时返回null
+     */
+    public Object getPoolSizeOwner() {
+        return poolSizeOwner.get();
+    }
+
+    /**
+     * 同时设置核心线程数与最大线程数，按不会违反corePoolSize <= maximumPoolSize的顺序依次设置，
+     * 因此可以从任意合法配置调整到另一个合法配置
+     */
+    public void setPoolSize(int corePoolSize, int maximumPoolSize) {
+        if (corePoolSize < 0 || maximumPoolSize <= 0 || maximumPoolSize < corePoolSize)
+            throw new IllegalArgumentException();
+        if (maximumPoolSize >= this.maximumPoolSize) {
+            setMaximumPoolSize(maximumPoolSize);
+            setCorePoolSize(corePoolSize);
+        } else {
+            setCorePoolSize(corePoolSize);
+            setMaximumPoolSize(maximumPoolSize);
+        }
+    }
+
+    /**
+     * 设置线程空闲的存活时间，变短时中断空闲的工作者，使其按新的时间重新等待
+     */
+    public void setKeepAliveTime(long time, TimeUnit unit) {
+        if (time < 0)
+            throw new IllegalArgumentException();
+        if (time == 0 && allowsCoreThreadTimeOut())
+            throw new IllegalArgumentException("Core threads must have nonzero keep alive times");
+        long keepAliveTime = unit.toNanos(time);
+        long delta = keepAliveTime - this.keepAliveTime;
+        this.keepAliveTime = keepAliveTime;
+        if (delta < 0)
+            interruptIdleWorkers();
+    }
+
+    public long getKeepAliveTime(TimeUnit unit) {
+        return unit.convert(keepAliveTime, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 返回当前线程池中的线程数
+     */
+    public int getPoolSize() {
+        return runStateAtLeast(ctl.get(), TIDYING) ? 0 : workers.size();
+    }
+
+    /**
+     * 返回线程池中曾经同时存在的最大线程数
+     */
+    public int getLargestPoolSize() {
+        return largestPoolSize.get();
+    }
+
+    /**
+     * 返回正在执行任务的线程数（近似值）
+     */
+    public int getActiveCount() {
+        int n = 0;
+        for (Worker w : workers) {
+            if (w.isBusy())
+                ++n;
+        }
+        return n;
+    }
+
+    /**
+     * 返回已完成执行的任务数（近似值），包括已退出的工作者完成的任务
+     */
+    public long getCompletedTaskCount() {
+        long n = completedTaskCount.sum();
+        for (Worker w : workers)
+            n += w.completedTasks;
+        return n;
+    }
+
+    /**
+     * 返回曾经计划执行的任务数（近似值），即已完成、正在执行与排队中的任务数之和
+     */
+    public long getTaskCount() {
+        PoolStats stats = getStats();
+        return stats.getCompletedTaskCount() + stats.getActiveCount() + stats.getQueuedTaskCount();
+    }
+
+    /**
+     * 返回排队中的任务数（近似值），包括工作者本地队列与批量缓冲中的任务
+     */
+    public int getQueuedTaskCount() {
+        int n = workQueue.size();
+        for (Worker w : workers)
+            n += w.localSize.get() + w.batchQueue.size();
+        return n;
+    }
+
+    /**
+     * 返回累计提交的任务数，包括被拒绝的任务
+     */
+    public long getSubmittedTaskCount() {
+        return submittedTaskCount.sum();
+    }
+
+    /**
+     * 返回累计被拒绝的任务数
+     */
+    public long getRejectedTaskCount() {
+        return rejectedTaskCount.sum();
+    }
+
+    /**
+     * 返回线程池统计快照
+     * 不需要获取mainLock，计数器为LongAdder或各工作者自己维护的计数，遍历一次工作者集合即可得到所有值，
+     * 与提交、执行并发进行，结果只保证大致一致
+     */
+    public PoolStats getStats() {
+        int poolSize = 0, active = 0, queued = workQueue.size();
+        long completed = completedTaskCount.sum();
+        for (Worker w : workers) {
+            ++poolSize;
+            if (w.isBusy())
+                ++active;
+            completed += w.completedTasks;
+            queued += w.localSize.get() + w.batchQueue.size();
+        }
+        if (runStateAtLeast(ctl.get(), TIDYING))
+            poolSize = 0;
+        return new PoolStats(submittedTaskCount.sum(),
+                completed,
+                rejectedTaskCount.sum(),
+                active,
+                queued,
+                poolSize,
+                largestPoolSize.get());
+    }
+
+    /**
+     * 设置工作者空闲策略
+     */
+    public void setIdleStrategy(IdleStrategy idleStrategy) {
+        if (idleStrategy == null)
+            throw new NullPointerException();
+        this.idleStrategy = idleStrategy;
+    }
+
+    public IdleStrategy getIdleStrategy() {
+        return idleStrategy;
+    }
+
+    /**
+     * 设置同时自旋等待任务的工作者数量上限
+     */
+    public void setMaxSpinningWorkers(int maxSpinningWorkers) {
+        if (maxSpinningWorkers < 0)
+            throw new IllegalArgumentException();
+        this.maxSpinningWorkers = maxSpinningWorkers;
+    }
+
+    public int getMaxSpinningWorkers() {
+        return maxSpinningWorkers;
+    }
+
+    /**
+     * 设置出队时已过期的DeadlineTask的回调，在工作者线程中调用，可用于记录或通知任务的提交方；null则只计数后丢弃
+     */
+    public void setExpiredTaskHandler(Consumer<? super DeadlineTask> handler) {
+        this.expiredTaskHandler = handler;
+    }
+
+    public Consumer<? super DeadlineTask> getExpiredTaskHandler() {
+        return expiredTaskHandler;
+    }
+
+    /**
+     * 返回出队时已过期而未执行的任务数
+     */
+    public long getExpiredTaskCount() {
+        return expiredTaskCount.sum();
+    }
+
+    /**
+     * 开启或关闭任务耗时统计
+     * 关闭时不会给任务打时间戳，也不会分配任何对象；已经打上时间戳的任务仍会被记录
+     */
+    public void setInstrumented(boolean value) {
+        this.instrumented = value;
+    }
+
+    public boolean isInstrumented() {
+        return instrumented;
+    }
+
+    /**
+     * 合并所有工作者（包括已退出的）的直方图，返回排队时间与执行时间的快照
+     * 不需要加锁，与正在记录的工作者并发执行，结果只保证大致一致
+     */
+    public TaskLatencySnapshot getTaskLatencySnapshot() {
+        long[] queueWait = new long[LatencyHistogram.BUCKET_COUNT];
+        long[] run = new long[LatencyHistogram.BUCKET_COUNT];
+        retiredQueueWaitHistogram.addTo(queueWait);
+        retiredRunHistogram.addTo(run);
+        for (Worker w : workers) {
+            LatencyHistogram h;
+            if ((h = w.queueWaitHistogram) != null)
+                h.addTo(queueWait);
+            if ((h = w.runHistogram) != null)
+                h.addTo(run);
+        }
+        return new TaskLatencySnapshot(new LatencySnapshot(queueWait),
+                new LatencySnapshot(run),
+                rejectedTaskCount.sum());
+    }
+
+    /**
+     * 开启或关闭运行任务跟踪
+     */
+    void setTrackingRunningTasks(boolean value) {
+        this.trackingRunningTasks = value;
+    }
+
+    /**
+     * 返回执行当前任务已经超过thresholdNanos的工作者，不采集线程栈，由调用方只为新发现的工作者采集
+     * 只遍历工作者集合，不需要加锁；工作者的phase为BUSY且runningTask非空即表示正在执行任务
+     * 工作者先写开始时间再写任务，结束时先清除任务再清除开始时间，这里按相反的顺序读：
+     * 先读开始时间，为0说明没有任务；再读任务，最后确认开始时间没有变化，
+     * 否则读到的任务与开始时间可能不属于同一次执行（例如任务刚结束，开始时间已清零），会误报卡住
+     */
+    List<StuckWorker> findStuckWorkers(long thresholdNanos) {
+        List<StuckWorker> stuck = new ArrayList<StuckWorker>();
+        long now = System.nanoTime();
+        for (Worker w : workers) {
+            long start = w.runningTaskStartNanos;
+            if (start == 0L || now - start < thresholdNanos)
+                continue;
+            Runnable task = w.runningTask;
+            if (task != null && w.runningTaskStartNanos == start && w.isBusy())
+                stuck.add(new StuckWorker(w.thread, task, start, now - start));
+        }
+        return stuck;
+    }
+
+    /**
+     * 参照ForkJoinPool.ManagedBlocker，任务在执行可能长时间阻塞的操作前，通过managedBlock()声明即将阻塞
+     */
+    public interface ManagedBlocker {
+        /**
+         * 执行阻塞操作，返回true表示不需要再阻塞
+         */
+        boolean block() throws InterruptedException;
+
+        /**
+         * 返回true表示不需要阻塞
+         */
+        boolean isReleasable();
+    }
+
+    /**
+     * 执行可能阻塞的操作，阻塞期间线程池临时增加一个补偿的工作者，使其他排队任务仍能执行，
+     * 避免大量任务同时阻塞（尤其是等待同一队列中的其他任务）时线程池吞吐量降为0甚至死锁；
+     * 阻塞返回后撤销补偿，多出的工作者空闲超过keepAliveTime后退出
+     * 不是本线程池的工作者线程调用时，只执行阻塞操作，不做补偿
+     * 例如等待MyCountDownLatch：block()中调用await()并返回true，isReleasable()返回getCount() == 0
+     */
+    public void managedBlock(ManagedBlocker blocker) throws InterruptedException {
+        if (blocker == null)
+            throw new NullPointerException();
+        boolean compensated = currentWorker.get() != null &&
+                ! blocker.isReleasable() &&
+                compensateForBlocking();
+        try {
+            while (! blocker.isReleasable() && ! blocker.block()) {
+            }
+        } finally {
+            if (compensated)
+                releaseCompensatingWorker();
+        }
+    }
+
+    /**
+     * 增加一个补偿，若现有线程数不足则启动一个新的工作者
+     * 之前撤销补偿而尚未退出的多余工作者可以直接充当补偿，不需要再创建线程
+     */
+    private boolean compensateForBlocking() {
+        int comp;
+        do {
+            if ((comp = compensatingWorkers.get()) >= MAX_BLOCKING_COMPENSATION)
+                return false;
+        } while (! compensatingWorkers.compareAndSet(comp, comp + 1));
+        if (workerCountOf(ctl.get()) < corePoolSize + comp + 1)
+            addWorker(null, true);
+        return true;
+    }
+
+    /**
+     * 增加一个补偿的工作者并立即启动，启动失败时撤销，返回是否成功
+     */
+    boolean addCompensatingWorker() {
+        compensatingWorkers.incrementAndGet();
+        if (addWorker(null, true))
+            return true;
+        compensatingWorkers.decrementAndGet();
+        return false;
+    }
+
+    /**
+     * 撤销一个补偿的工作者，多出的工作者空闲超过keepAliveTime后退出
+     * 撤销后工作者数量超过核心线程数时，所有空闲的工作者都可能在不限时地等待任务，
+     * 只中断其中一个使其按新的上限改为限时等待，多出的只有一个，不需要中断全部空闲的工作者
+     */
+    void releaseCompensatingWorker() {
+        int comp = compensatingWorkers.decrementAndGet();
+        if (! allowCoreThreadTimeOut && workerCountOf(ctl.get()) > corePoolSize + comp)
+            interruptOneIdleWorker();
+    }
+
+    /**
+     * 中断一个空闲的工作者，跳过正在执行任务或已经被中断的工作者
+     */
+    private void interruptOneIdleWorker() {
+        for (Worker w : workers) {
+            if (! w.thread.isInterrupted() && w.tryInterruptIfIdle())
+                return;
+        }
+    }
+
+    /**
+     * 开启或关闭积极扩容模式
+     * 开启后没有空闲工作者时优先创建非核心工作者直到maximumPoolSize，之后才入队；
+     * 入队的任务照常由所有工作者（包括新创建的）取出执行，多出的工作者空闲超过keepAliveTime后退出
+     */
+    public void setEagerGrow(boolean value) {
+        this.eagerGrow = value;
+    }
+
+    public boolean isEagerGrow() {
+        return eagerGrow;
+    }
+
+    /**
+     * 返回当前补偿的工作者数
+     */
+    public int getCompensatingWorkerCount() {
+        return compensatingWorkers.get();
+    }
+
+    /**
+     * 开启或关闭任务采样
+     */
+    void setSampling(boolean value) {
+        this.sampling = value;
+    }
+
+    long getSampledSubmittedCount() {
+        return sampledSubmittedCount.sum();
+    }
+
+    long getSampledCompletedCount() {
+        return sampledCompletedCount.sum();
+    }
+
+    long getSampledRunNanos() {
+        return sampledRunNanos.sum();
+    }
+
+    /**
+     * 开启或关闭工作窃取模式
+     * 关闭后各工作者本地队列中剩余的任务仍会由其所属工作者执行完
+     */
+    public void setWorkStealing(boolean value) {
+        this.workStealing = value;
+    }
+
+    public boolean isWorkStealing() {
+        return workStealing;
+    }
+
+    /**
+     * 设置工作者每次从共享队列拉取任务的最大数量，1表示关闭批量拉取
+     */
+    public void setTaskBatchSize(int taskBatchSize) {
+        if (taskBatchSize < 1)
+            throw new IllegalArgumentException();
+        this.taskBatchSize = taskBatchSize;
+    }
+
+    public int getTaskBatchSize() {
+        return taskBatchSize;
+    }
+
+    /**
+     * 启动一个核心线程，使其空闲等待任务，覆盖只有执行新任务时才启动核心线程的默认策略
+     * 如果所有核心线程都已经启动，返回false
+     */
+    public boolean prestartCoreThread() {
+        return workerCountOf(ctl.get()) < corePoolSize &&
+                addWorker(null, true);
+    }
+
+    /**
+     * 启动所有核心线程，使其空闲等待任务，返回启动的线程数
+     */
+    public int prestartAllCoreThreads() {
+        int n = 0;
+        while (addWorker(null, true))
+            ++n;
+        return n;
+    }
+
+    /**
+     * 预热线程池：启动所有核心线程，然后把mix中的任务提交rounds轮，每轮全部执行完后再提交下一轮，
+     * 使工作者线程与提交、执行路径在接收真实流量前完成JIT编译，避免部署后第一波请求的延迟尖刺
+     * 只有预热在timeout内成功完成后isReady()才返回true；超时或抛出异常时回到未预热状态，可以再次预热，
+     * 已经成功预热过时直接返回true；预热任务抛出的异常会被忽略，被拒绝的任务视为已完成
+     * 预热任务计入线程池的统计数据
+     *
+     * @return 所有预热任务在timeout内执行完成返回true，超时返回false
+     * @throws IllegalStateException 其他线程正在预热该线程池
+     */
+    public boolean warmUp(Collection<? extends Runnable> mix, int rounds, long timeout, TimeUnit unit)
+            throws InterruptedException {
+        if (mix == null || unit == null)
+            throw new NullPointerException();
+        if (rounds < 0)
+            throw new IllegalArgumentException();
+        for (Runnable r : mix) {
+            if (r == null)
+                throw new NullPointerException();
+        }
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        int state;
+        do {
+            if ((state = warmUpState.get()) == WARM_UP_DONE)
+                return true;
+            if (state == WARM_UP_RUNNING)
+                throw new IllegalStateException("Warm-up already in progress");
+        } while (! warmUpState.compareAndSet(state, WARM_UP_RUNNING));
+        boolean done = false;
+        try {
+            prestartAllCoreThreads();
+            for (int i = 0; i < rounds && ! mix.isEmpty(); i++) {
+                CountDownLatch latch = new CountDownLatch(mix.size());
+                for (Runnable r : mix) {
+                    try {
+                        execute(() -> {
+                            try {
+                                r.run();
+                            } catch (RuntimeException ignore) {
+                            } finally {
+                                latch.countDown();
+                            }
+                        });
+                    } catch (RejectedExecutionException ex) {
+                        latch.countDown();
+                    }
+                }
+                if (! latch.await(deadline - System.nanoTime(), TimeUnit.NANOSECONDS))
+                    return false;
+            }
+            done = true;
+            return true;
+        } finally {
+            warmUpState.set(done ? WARM_UP_DONE : WARM_UP_NONE);
+        }
+    }
+
+    /**
+     * 线程池是否可以接收流量：处于运行状态并且warmUp()已经成功完成，尚未预热或者预热超时、失败时返回false
+     */
+    public boolean isReady() {
+        return isRunning(ctl.get()) && warmUpState.get() == WARM_UP_DONE;
+    }
+
     public boolean isShutdown() {
         return ! isRunning(ctl.get());
     }
@@ -870,9 +2322,118 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
          */
         public void rejectedExecution(Runnable r, ThreadPoolExecutor e) {
             if (!e.isShutdown()) {
-                e.getQueue().poll();
+                Runnable oldest = e.getQueue().poll();
+                if (oldest != null)
+                    e.discard(oldest);
                 e.execute(r);
             }
         }
     }
+
+    /**
+     * 基于CoDel（Controlled Delay）的自适应削峰策略
+     * 队列满时才触发的拒绝策略反应太慢，此时排队时间早已失控。CoDel跟踪任务的排队时间（sojourn time），
+     * 若一个interval内的最小排队时间都高于target，说明队列形成了持续的积压而不是短暂的突发，判定为过载；
+     * 过载期间execute()按CoDel控制律快速拒绝新任务，第n次拒绝与下一次拒绝间隔interval/sqrt(n)，逐步加大削峰力度；
+     * 同时工作者出队时丢弃排队时间已超过target的任务，不再执行已经失去时效的积压，使排队时间能够回到target以下，
+     * 直到某个interval内出现低于target的排队时间才退出过载
+     * 提交时被削峰的任务以及队列满时被拒绝的任务交给delegate处理；出队时丢弃的任务只计入getShedCount()，
+     * 不交给delegate，因为此时已没有提交者，delegate的约定（如CallerRunsPolicy在提交线程中执行）不再成立
+     */
+    public static class CoDelPolicy implements RejectedExecutionHandler {
+        private final RejectedExecutionHandler delegate;
+        private final long targetNanos;
+        private final long intervalNanos;
+
+        /** 当前统计区间的结束时间 */
+        private final AtomicLong intervalEnd;
+        /** 当前统计区间内的最小排队时间 */
+        private final AtomicLong minSojourn = new AtomicLong(Long.MAX_VALUE);
+        /** 是否过载 */
+        private volatile boolean overloaded;
+        /** 本次过载以来的削峰次数 */
+        private final AtomicLong shedCount = new AtomicLong();
+        /** 下一次允许削峰的时间 */
+        private final AtomicLong nextShedNanos = new AtomicLong();
+        /** 累计削峰的任务数 */
+        private final LongAdder totalShed = new LongAdder();
+
+        /**
+         * 默认target为5ms，interval为100ms，拒绝时抛出RejectedExecutionException
+         */
+        public CoDelPolicy() {
+            this(new AbortPolicy(), 5L, 100L, TimeUnit.MILLISECONDS);
+        }
+
+        public CoDelPolicy(RejectedExecutionHandler delegate, long target, long interval, TimeUnit unit) {
+            if (delegate == null || unit == null)
+                throw new NullPointerException();
+            if (target <= 0 || interval <= 0)
+                throw new IllegalArgumentException();
+            this.delegate = delegate;
+            this.targetNanos = unit.toNanos(target);
+            this.intervalNanos = unit.toNanos(interval);
+            this.intervalEnd = new AtomicLong(System.nanoTime() + intervalNanos);
+        }
+
+        /**
+         * 工作者取出任务时报告其排队时间；每个interval结束时根据区间内的最小排队时间更新过载状态
+         * 返回true表示处于过载状态且该任务的排队时间超过target，已计为削峰，应被丢弃；droppable为false的任务只报告排队时间
+         */
+        boolean onDequeue(long sojournNanos, long nowNanos, boolean droppable) {
+            long min;
+            while (sojournNanos < (min = minSojourn.get()) &&
+                    !minSojourn.compareAndSet(min, sojournNanos)) {
+            }
+            long end = intervalEnd.get();
+            if (nowNanos - end >= 0L && intervalEnd.compareAndSet(end, nowNanos + intervalNanos)) {
+                boolean over = minSojourn.getAndSet(Long.MAX_VALUE) > targetNanos;
+                if (over && !overloaded) {
+                    shedCount.set(0L);
+                    nextShedNanos.set(nowNanos);
+                }
+                overloaded = over;
+            }
+            if (!droppable || !overloaded || sojournNanos <= targetNanos)
+                return false;
+            totalShed.increment();
+            return true;
+        }
+
+        /**
+         * execute()调用，返回false表示该任务应被削峰
+         */
+        boolean admit(long nowNanos) {
+            if (!overloaded)
+                return true;
+            long next = nextShedNanos.get();
+            if (nowNanos - next < 0L)
+                return true;
+            // 只有CAS成功的提交者才削峰并计数，竞争失败的提交者不会加快控制律
+            long n = shedCount.get() + 1;
+            if (!nextShedNanos.compareAndSet(next, nowNanos + (long) (intervalNanos / Math.sqrt(n))))
+                return true;
+            shedCount.incrementAndGet();
+            totalShed.increment();
+            return false;
+        }
+
+        /**
+         * 当前是否处于过载状态
+         */
+        public boolean isOverloaded() {
+            return overloaded;
+        }
+
+        /**
+         * 累计削峰的任务数，包括出队时丢弃的任务，不包括队列满时被拒绝的任务
+         */
+        public long getShedCount() {
+            return totalShed.sum();
+        }
+
+        public void rejectedExecution(Runnable r, ThreadPoolExecutor e) {
+            delegate.rejectedExecution(r, e);
+        }
+    }
 }
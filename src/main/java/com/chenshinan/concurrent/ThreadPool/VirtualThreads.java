@@ -0,0 +1,81 @@
+package com.chenshinan.concurrent.ThreadPool;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 虚拟线程执行模式：线程池的工作者运行在虚拟线程上，任务在task.run()中阻塞IO时不再占用平台线程
+ * 项目以Java 8编译，因此通过反射探测Thread.ofVirtual()，运行在不支持虚拟线程的JDK上时回退为普通平台线程
+ *
+ * @author shinan.chen
+ * @since 2026/10/16
+ */
+public final class VirtualThreads {
+    /**
+     * 虚拟线程工厂，不支持虚拟线程时为null
+     */
+    private static final ThreadFactory VIRTUAL_THREAD_FACTORY = createVirtualThreadFactory();
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * 通过反射调用 Thread.ofVirtual().name("virtual-pool-worker-", 0).factory()
+     * JDK 21以下没有该方法，JDK 19/20未开启预览特性时会抛出UnsupportedOperationException，都返回null
+     */
+    private static ThreadFactory createVirtualThreadFactory() {
+        try {
+            Method ofVirtual = Thread.class.getMethod("ofVirtual");
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Object builder = ofVirtual.invoke(null);
+            builder = builderClass.getMethod("name", String.class, long.class)
+                    .invoke(builder, "virtual-pool-worker-", 0L);
+            return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+        } catch (Throwable unsupported) {
+            return null;
+        }
+    }
+
+    /**
+     * 当前JDK是否支持虚拟线程
+     */
+    public static boolean isSupported() {
+        return VIRTUAL_THREAD_FACTORY != null;
+    }
+
+    /**
+     * 返回创建虚拟线程的工厂，不支持虚拟线程时返回fallback
+     */
+    public static ThreadFactory threadFactory(ThreadFactory fallback) {
+        if (fallback == null)
+            throw new NullPointerException();
+        return VIRTUAL_THREAD_FACTORY != null ? VIRTUAL_THREAD_FACTORY : fallback;
+    }
+
+    /**
+     * 创建虚拟线程模式的线程池，每个工作者是一个虚拟线程
+     * concurrencyLimit代替maximumPoolSize限制同时执行的任务数，排队、拒绝策略与shutdown语义与普通线程池相同
+     * keepAliveTime大于0时核心线程允许超时，空闲超过keepAliveTime的工作者会退出；
+     * keepAliveTime为0时工作者不会因空闲而退出（allowCoreThreadTimeOut()不接受为0的存活时间）
+     * 不支持虚拟线程时回退为同样配置的平台线程池
+     */
+    public static ThreadPoolExecutor newThreadPool(int concurrencyLimit,
+                                                   long keepAliveTime,
+                                                   TimeUnit unit,
+                                                   BlockingQueue<Runnable> workQueue,
+                                                   RejectedExecutionHandler handler) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(concurrencyLimit,
+                concurrencyLimit,
+                keepAliveTime,
+                unit,
+                workQueue,
+                threadFactory(Executors.defaultThreadFactory()),
+                handler);
+        if (executor.getKeepAliveTime(TimeUnit.NANOSECONDS) > 0L)
+            executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+}
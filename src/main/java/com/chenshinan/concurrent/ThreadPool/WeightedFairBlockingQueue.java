@@ -0,0 +1,569 @@
+package com.chenshinan.concurrent.ThreadPool;
+
+import java.util.AbstractQueue;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 多租户加权公平阻塞队列，可作为ThreadPoolExecutor的workQueue
+ * 每个租户有自己的子队列与容量上限，一个租户的子队列满了只会拒绝该租户的任务，不影响其他租户；
+ * 出队采用差额轮询（Deficit Round Robin）：有任务的租户排成一个环，轮到某个租户时给它增加weight个配额，
+ * 每出队一个任务消耗一个配额，配额用完后轮到下一个租户，子队列为空的租户离开环并清零配额
+ * 这样各租户获得的工作者时间与权重成正比，单个租户的积压不会饿死其他租户
+ * TenantTask按自己的租户入队，普通任务属于默认租户DEFAULT_TENANT
+ * 租户第一次入队时按默认权重与容量创建，子队列变空且没有等待的生产者时移除，租户数量很多时也不会无限占用内存；
+ * 通过setTenant()配置的租户一直保留；各租户被拒绝的计数单独保存，不随租户移除，每个租户只占一个计数
+ *
+ * @author shinan.chen
+ * @since 2026/10/16
+ */
+public class WeightedFairBlockingQueue extends AbstractQueue<Runnable> implements BlockingQueue<Runnable> {
+
+    /**
+     * 普通任务所属的默认租户
+     */
+    public static final Object DEFAULT_TENANT = new Object() {
+        @Override
+        public String toString() {
+            return "DEFAULT_TENANT";
+        }
+    };
+
+    /**
+     * 一个租户的子队列与统计
+     */
+    private static final class Tenant {
+        final Object key;
+        final ArrayDeque<Runnable> tasks = new ArrayDeque<Runnable>();
+        /** 该租户子队列未满的条件，出队时只唤醒该租户的一个生产者 */
+        final Condition notFull;
+        /** 是否通过setTenant()配置，配置的租户不会被移除 */
+        boolean configured;
+        /** 在notFull上等待的生产者数 */
+        int waiters;
+        int weight;
+        int capacity;
+        /** 本轮剩余的出队配额 */
+        int deficit;
+        /** 是否在轮询环中 */
+        boolean active;
+
+        Tenant(Object key, int weight, int capacity, Condition notFull) {
+            this.key = key;
+            this.notFull = notFull;
+            this.weight = weight;
+            this.capacity = capacity;
+        }
+    }
+
+    private final HashMap<Object, Tenant> tenants = new HashMap<Object, Tenant>();
+    /**
+     * 各租户因子队列已满而被拒绝入队的任务数，租户从tenants中移除后保留
+     */
+    private final HashMap<Object, Long> rejectedCounts = new HashMap<Object, Long>();
+    /**
+     * 有任务的租户组成的轮询环，队首为当前轮到的租户
+     */
+    private final ArrayDeque<Tenant> active = new ArrayDeque<Tenant>();
+    private final int defaultWeight;
+    private final int defaultCapacity;
+    private int count;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+
+    /**
+     * 租户默认权重为1，默认容量不限
+     */
+    public WeightedFairBlockingQueue() {
+        this(1, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param defaultWeight   未配置租户的权重
+     * @param defaultCapacity 未配置租户的子队列容量
+     */
+    public WeightedFairBlockingQueue(int defaultWeight, int defaultCapacity) {
+        if (defaultWeight <= 0 || defaultCapacity <= 0)
+            throw new IllegalArgumentException();
+        this.defaultWeight = defaultWeight;
+        this.defaultCapacity = defaultCapacity;
+    }
+
+    /**
+     * 配置租户的权重与子队列容量，对已经排队的任务同样生效；容量变小时不会移除已经排队的任务
+     */
+    public void setTenant(Object tenant, int weight, int capacity) {
+        if (tenant == null)
+            throw new NullPointerException();
+        if (weight <= 0 || capacity <= 0)
+            throw new IllegalArgumentException();
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            Tenant t = tenants.get(tenant);
+            if (t == null)
+                tenants.put(tenant, t = new Tenant(tenant, weight, capacity, lock.newCondition()));
+            else {
+                t.weight = weight;
+                t.deficit = Math.min(t.deficit, weight);
+                if (capacity > t.capacity)
+                    t.notFull.signalAll();
+                t.capacity = capacity;
+            }
+            t.configured = true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 返回租户子队列中的任务数
+     */
+    public int getTenantQueueSize(Object tenant) {
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            Tenant t = tenants.get(tenant);
+            return t == null ? 0 : t.tasks.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 返回租户因子队列已满而被拒绝入队的任务数，租户空闲被移除后仍然累计
+     * 入队失败后线程池可能仍会由非核心工作者执行该任务，线程池层面的拒绝由RejectedExecutionHandler处理
+     */
+    public long getTenantRejectedCount(Object tenant) {
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            Long n = rejectedCounts.get(tenant);
+            return n == null ? 0L : n;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 返回当前有排队任务或者通过setTenant()配置的租户
+     */
+    public List<Object> getTenants() {
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            return new ArrayList<Object>(tenants.keySet());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 持有锁时返回任务所属的租户，不存在则按默认值创建
+     */
+    private Tenant tenantOf(Runnable r) {
+        TenantTask tt = ThreadPoolExecutor.tenantTaskOf(r);
+        Object key = tt != null ? tt.getTenant() : DEFAULT_TENANT;
+        Tenant t = tenants.get(key);
+        if (t == null)
+            tenants.put(key, t = new Tenant(key, defaultWeight, defaultCapacity, lock.newCondition()));
+        return t;
+    }
+
+    /**
+     * 持有锁时记录租户的一次拒绝
+     */
+    private void rejected(Tenant t) {
+        rejectedCounts.merge(t.key, 1L, Long::sum);
+    }
+
+    /**
+     * 持有锁时，子队列为空、没有等待的生产者且未配置的租户从租户表中移除
+     */
+    private void evictIfIdle(Tenant t) {
+        if (t.tasks.isEmpty() && t.waiters == 0 && ! t.configured)
+            tenants.remove(t.key);
+    }
+
+    /**
+     * 持有锁时等待租户的子队列未满
+     */
+    private long awaitNotFull(Tenant t, long nanos, boolean timed) throws InterruptedException {
+        t.waiters++;
+        try {
+            if (! timed)
+                t.notFull.await();
+            else
+                nanos = t.notFull.awaitNanos(nanos);
+        } catch (InterruptedException ie) {
+            // 等待期间子队列可能已经变空，最后一个离开的生产者负责移除
+            t.waiters--;
+            evictIfIdle(t);
+            throw ie;
+        }
+        t.waiters--;
+        return nanos;
+    }
+
+    /**
+     * 持有锁时入队，子队列为空的租户加入轮询环的队尾
+     * 入队后子队列仍未满时继续唤醒该租户的下一个生产者，避免被唤醒的生产者超时离开后其他生产者一直等待
+     */
+    private void enqueue(Tenant t, Runnable e) {
+        t.tasks.addLast(e);
+        if (! t.active) {
+            t.active = true;
+            active.addLast(t);
+        }
+        count++;
+        notEmpty.signal();
+        if (t.waiters > 0 && t.tasks.size() < t.capacity)
+            t.notFull.signal();
+    }
+
+    /**
+     * 持有锁时按差额轮询出队
+     */
+    private Runnable dequeue() {
+        Tenant t = active.peekFirst();
+        if (t == null)
+            return null;
+        // 轮到该租户时增加一轮配额
+        if (t.deficit <= 0)
+            t.deficit += t.weight;
+        Runnable e = t.tasks.pollFirst();
+        t.deficit--;
+        count--;
+        if (t.tasks.isEmpty()) {
+            active.pollFirst();
+            t.active = false;
+            t.deficit = 0;
+        } else if (t.deficit <= 0) {
+            active.pollFirst();
+            active.addLast(t);
+        }
+        if (t.waiters > 0)
+            t.notFull.signal();
+        else
+            evictIfIdle(t);
+        return e;
+    }
+
+    /**
+     * 持有锁时从租户子队列中删除元素，子队列为空则离开轮询环
+     */
+    private void removeFrom(Tenant t, Iterator<Runnable> it) {
+        it.remove();
+        count--;
+        if (t.tasks.isEmpty() && t.active) {
+            active.remove(t);
+            t.active = false;
+            t.deficit = 0;
+        }
+        if (t.waiters > 0)
+            t.notFull.signal();
+        else
+            evictIfIdle(t);
+    }
+
+    @Override
+    public boolean offer(Runnable e) {
+        if (e == null)
+            throw new NullPointerException();
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            Tenant t = tenantOf(e);
+            if (t.tasks.size() >= t.capacity) {
+                rejected(t);
+                return false;
+            }
+            enqueue(t, e);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void put(Runnable e) throws InterruptedException {
+        if (e == null)
+            throw new NullPointerException();
+        final ReentrantLock lock = this.lock;
+        lock.lockInterruptibly();
+        try {
+            Tenant t = tenantOf(e);
+            while (t.tasks.size() >= t.capacity)
+                awaitNotFull(t, 0L, false);
+            enqueue(t, e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean offer(Runnable e, long timeout, TimeUnit unit) throws InterruptedException {
+        if (e == null)
+            throw new NullPointerException();
+        long nanos = unit.toNanos(timeout);
+        final ReentrantLock lock = this.lock;
+        lock.lockInterruptibly();
+        try {
+            Tenant t = tenantOf(e);
+            while (t.tasks.size() >= t.capacity) {
+                if (nanos <= 0L) {
+                    rejected(t);
+                    return false;
+                }
+                nanos = awaitNotFull(t, nanos, true);
+            }
+            enqueue(t, e);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Runnable poll() {
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            return dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Runnable take() throws InterruptedException {
+        final ReentrantLock lock = this.lock;
+        lock.lockInterruptibly();
+        try {
+            while (count == 0)
+                notEmpty.await();
+            return dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Runnable poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        final ReentrantLock lock = this.lock;
+        lock.lockInterruptibly();
+        try {
+            while (count == 0) {
+                if (nanos <= 0L)
+                    return null;
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            return dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Runnable peek() {
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            Tenant t = active.peekFirst();
+            return t == null ? null : t.tasks.peekFirst();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            return count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 新的租户总是可以入队，因此没有固定的剩余容量
+     */
+    @Override
+    public int remainingCapacity() {
+        return Integer.MAX_VALUE;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        if (o == null)
+            return false;
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            for (Tenant t : active) {
+                for (Iterator<Runnable> it = t.tasks.iterator(); it.hasNext(); ) {
+                    if (o.equals(it.next())) {
+                        removeFrom(t, it);
+                        return true;
+                    }
+                }
+            }
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void clear() {
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            for (Tenant t : active) {
+                t.tasks.clear();
+                t.active = false;
+                t.deficit = 0;
+                if (t.waiters > 0)
+                    t.notFull.signalAll();
+                else
+                    evictIfIdle(t);
+            }
+            active.clear();
+            count = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int drainTo(Collection<? super Runnable> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    /**
+     * 按出队顺序转移元素
+     */
+    @Override
+    public int drainTo(Collection<? super Runnable> c, int maxElements) {
+        if (c == null)
+            throw new NullPointerException();
+        if (c == this)
+            throw new IllegalArgumentException();
+        if (maxElements <= 0)
+            return 0;
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            int n = 0;
+            while (n < maxElements && count > 0) {
+                c.add(dequeue());
+                n++;
+            }
+            return n;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 返回队列快照的迭代器，按租户分组，顺序不保证为出队顺序，通过迭代器删除会删除队列中的元素
+     */
+    @Override
+    public Iterator<Runnable> iterator() {
+        final Runnable[] snapshot;
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            snapshot = new Runnable[count];
+            int i = 0;
+            for (Tenant t : active) {
+                for (Runnable e : t.tasks)
+                    snapshot[i++] = e;
+            }
+        } finally {
+            lock.unlock();
+        }
+        return new Iterator<Runnable>() {
+            int cursor;
+            int lastRet = -1;
+
+            @Override
+            public boolean hasNext() {
+                return cursor < snapshot.length;
+            }
+
+            @Override
+            public Runnable next() {
+                if (cursor >= snapshot.length)
+                    throw new NoSuchElementException();
+                lastRet = cursor;
+                return snapshot[cursor++];
+            }
+
+            @Override
+            public void remove() {
+                if (lastRet < 0)
+                    throw new IllegalStateException();
+                removeEq(snapshot[lastRet]);
+                lastRet = -1;
+            }
+        };
+    }
+
+    /**
+     * 按引用删除元素，供迭代器使用
+     */
+    private void removeEq(Object o) {
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            for (Tenant t : active) {
+                for (Iterator<Runnable> it = t.tasks.iterator(); it.hasNext(); ) {
+                    if (it.next() == o) {
+                        removeFrom(t, it);
+                        return;
+                    }
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public String toString() {
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            StringBuilder sb = new StringBuilder("WeightedFairBlockingQueue[");
+            boolean first = true;
+            for (Map.Entry<Object, Tenant> e : tenants.entrySet()) {
+                if (! first)
+                    sb.append(", ");
+                first = false;
+                Tenant t = e.getValue();
+                sb.append(e.getKey()).append(" = ").append(t.tasks.size())
+                        .append('/').append(t.capacity)
+                        .append(" w").append(t.weight)
+                        .append(" rejected ").append(rejectedCounts.getOrDefault(e.getKey(), 0L));
+            }
+            return sb.append(']').toString();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.chenshinan.concurrent.ThreadPool;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * HashedWheelScheduler中的一个定时任务，同时也是提交给线程池执行的Runnable
+ * 周期任务在整个生命周期中复用同一个对象，每次执行结束后重新放回时间轮；
+ * 在线程池中排队时被丢弃与到期时未被线程池接受的处理相同
+ *
+ * @author shinan.chen
+ * @since 2026/10/16
+ */
+public final class WheelTimeout implements DiscardAwareTask {
+
+    /** 等待到期 */
+    static final int WAITING = 0;
+    /** 已到期并提交给线程池，周期任务执行完后回到WAITING */
+    static final int FIRED = 1;
+    /** 已取消 */
+    static final int CANCELLED = 2;
+
+    private static final AtomicIntegerFieldUpdater<WheelTimeout> STATE_UPDATER =
+            AtomicIntegerFieldUpdater.newUpdater(WheelTimeout.class, "state");
+
+    private final HashedWheelScheduler scheduler;
+    private final Runnable task;
+    /**
+     * 周期（纳秒）：大于0为固定频率，小于0为固定延迟，等于0为一次性任务
+     */
+    private final long period;
+    private volatile int state = WAITING;
+    /** 到期时间，基于System.nanoTime() */
+    volatile long deadlineNanos;
+
+    /* 以下字段只由时间轮线程访问 */
+    /** 到期的tick */
+    long deadlineTick;
+    /** 所在的桶，不在时间轮中时为null */
+    HashedWheelScheduler.Bucket bucket;
+    WheelTimeout prev;
+    WheelTimeout next;
+
+    WheelTimeout(HashedWheelScheduler scheduler, Runnable task, long deadlineNanos, long period) {
+        this.scheduler = scheduler;
+        this.task = task;
+        this.deadlineNanos = deadlineNanos;
+        this.period = period;
+    }
+
+    public Runnable getTask() {
+        return task;
+    }
+
+    /**
+     * 取消任务，O(1)：只修改状态，由时间轮线程在下一个tick把它从桶中摘除
+     * 已提交给线程池的一次性任务无法取消；周期任务取消后不再有下一次执行
+     */
+    public boolean cancel() {
+        int s;
+        while ((s = state) != CANCELLED) {
+            if (s == FIRED && period == 0L)
+                return false;
+            if (STATE_UPDATER.compareAndSet(this, s, CANCELLED)) {
+                if (s == WAITING)
+                    scheduler.cancelled(this);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean isCancelled() {
+        return state == CANCELLED;
+    }
+
+    /**
+     * 一次性任务是否已提交给线程池；被线程池拒绝的一次性任务视为已取消
+     */
+    public boolean isExpired() {
+        return state == FIRED && period == 0L;
+    }
+
+    public boolean isPeriodic() {
+        return period != 0L;
+    }
+
+    /**
+     * 距离下一次到期的剩余时间
+     */
+    public long getDelay(TimeUnit unit) {
+        return unit.convert(deadlineNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 时间轮线程在到期时调用，成功则应提交给线程池
+     */
+    boolean fire() {
+        return STATE_UPDATER.compareAndSet(this, WAITING, FIRED);
+    }
+
+    /**
+     * 在线程池中执行任务；周期任务正常结束后计算下一次到期时间并放回时间轮，抛出异常则不再执行
+     */
+    @Override
+    public void run() {
+        boolean completed = false;
+        try {
+            task.run();
+            completed = true;
+        } finally {
+            if (completed && period != 0L)
+                rescheduleNext();
+        }
+    }
+
+    /**
+     * 已被线程池接受，排队时被丢弃，按被拒绝处理
+     */
+    @Override
+    public void onDiscard() {
+        scheduler.rejected(this);
+    }
+
+    /**
+     * 线程池未接受或丢弃时调用：一次性任务，或者线程池已经关闭时取消；
+     * 否则周期任务跳过本次执行，按周期计算下一次到期时间放回时间轮
+     */
+    void rejected(boolean executorShutdown) {
+        if (period == 0L || executorShutdown)
+            STATE_UPDATER.compareAndSet(this, FIRED, CANCELLED);
+        else
+            rescheduleNext();
+    }
+
+    private void rescheduleNext() {
+        deadlineNanos = period > 0L ?
+                deadlineNanos + period :
+                System.nanoTime() - period;
+        if (STATE_UPDATER.compareAndSet(this, FIRED, WAITING))
+            scheduler.reschedule(this);
+    }
+
+    @Override
+    public String toString() {
+        return "WheelTimeout[task = " + task + ", state = " + state + "]";
+    }
+}
@@ -0,0 +1,145 @@
+package com.chenshinan.concurrent.ThreadPool;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.AbstractQueuedSynchronizer;
+
+/**
+ * 工作者执行每个任务前后的中断门控开销对比：
+ * 1. 原来的AQS方式：执行任务前lock()、执行后unlock()，每个任务两次CAS
+ * 2. 现在的状态标记方式，每个任务都切换状态的最坏情况：执行前写BUSY并检查中断者的认领标记，之后写IDLE，没有CAS
+ * 3. 现在的状态标记方式，连续取到任务时保持BUSY：每个任务只有一次volatile读
+ * 最后测量单个工作者从预先填满的等待队列中执行空任务的每任务耗时，
+ * 以及提交一个任务、等它执行完再提交下一个时每个任务的往返耗时（工作者每个任务都要在忙碌与空闲之间切换），可与修改前的版本对比
+ *
+ * @author shinan.chen
+ * @since 2026/10/16
+ */
+public class WorkerGateBenchmark {
+
+    private static final int ITERATIONS = 50_000_000;
+    private static final int TASKS = 5_000_000;
+    private static final int ROUNDS = 5;
+    private static final int ROUND_TRIPS = 200_000;
+
+    /**
+     * 原来Worker的AQS互斥锁
+     */
+    static final class AqsGate extends AbstractQueuedSynchronizer {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean tryAcquire(int unused) {
+            if (compareAndSetState(0, 1)) {
+                setExclusiveOwnerThread(Thread.currentThread());
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        protected boolean tryRelease(int unused) {
+            setExclusiveOwnerThread(null);
+            setState(0);
+            return true;
+        }
+    }
+
+    /**
+     * 现在Worker的状态标记与中断者认领标记
+     */
+    static final class FlagGate {
+        volatile int phase;
+        final AtomicBoolean interruptClaim = new AtomicBoolean();
+
+        void begin() {
+            if (phase != 1) {
+                phase = 1;
+                while (interruptClaim.get())
+                    Thread.yield();
+            }
+        }
+
+        void end() {
+            phase = 0;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        AqsGate aqs = new AqsGate();
+        FlagGate flag = new FlagGate();
+        for (int r = 0; r < ROUNDS; r++) {
+            long t0 = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++) {
+                aqs.acquire(1);
+                aqs.release(1);
+            }
+            long t1 = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++) {
+                flag.begin();
+                flag.end();
+            }
+            long t2 = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++)
+                flag.begin();
+            flag.end();
+            long t3 = System.nanoTime();
+            System.out.printf("round %d: AQS lock/unlock %.2f ns/task, flag switching %.2f ns/task, flag staying busy %.2f ns/task%n",
+                    r, (t1 - t0) / (double) ITERATIONS, (t2 - t1) / (double) ITERATIONS, (t3 - t2) / (double) ITERATIONS);
+        }
+        for (int r = 0; r < ROUNDS; r++)
+            System.out.printf("round %d: ThreadPoolExecutor %.2f ns/task%n", r, poolNanosPerTask());
+        for (int r = 0; r < ROUNDS; r++)
+            System.out.printf("round %d: round trip LinkedBlockingQueue %.2f ns/task, ArrayBlockingQueue %.2f ns/task%n", r,
+                    roundTripNanosPerTask(new LinkedBlockingQueue<Runnable>()),
+                    roundTripNanosPerTask(new ArrayBlockingQueue<Runnable>(1024)));
+    }
+
+    /**
+     * 提交一个任务并自旋等待它执行完，再提交下一个，测量每个任务的往返耗时
+     */
+    private static double roundTripNanosPerTask(BlockingQueue<Runnable> queue) throws InterruptedException {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 1, TimeUnit.SECONDS, queue,
+                Executors.defaultThreadFactory(), new ThreadPoolExecutor.AbortPolicy());
+        executor.prestartCoreThread();
+        AtomicBoolean done = new AtomicBoolean();
+        Runnable task = () -> done.set(true);
+        long t0 = System.nanoTime();
+        for (int i = 0; i < ROUND_TRIPS; i++) {
+            done.set(false);
+            executor.execute(task);
+            while (! done.get()) {
+            }
+        }
+        long t1 = System.nanoTime();
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.SECONDS);
+        return (t1 - t0) / (double) ROUND_TRIPS;
+    }
+
+    /**
+     * 先把任务放入等待队列再启动唯一的工作者，测量其执行完所有空任务的每任务耗时
+     */
+    private static double poolNanosPerTask() throws InterruptedException {
+        LinkedBlockingQueue<Runnable> queue = new LinkedBlockingQueue<Runnable>();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 1, TimeUnit.SECONDS, queue,
+                Executors.defaultThreadFactory(), new ThreadPoolExecutor.AbortPolicy());
+        CountDownLatch done = new CountDownLatch(1);
+        Runnable empty = () -> { };
+        for (int i = 1; i < TASKS; i++)
+            queue.offer(empty);
+        queue.offer(done::countDown);
+        long t0 = System.nanoTime();
+        executor.prestartCoreThread();
+        done.await();
+        long t1 = System.nanoTime();
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.SECONDS);
+        return (t1 - t0) / (double) TASKS;
+    }
+}
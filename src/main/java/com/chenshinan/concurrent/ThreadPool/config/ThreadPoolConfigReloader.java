@@ -0,0 +1,142 @@
+package com.chenshinan.concurrent.ThreadPool.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.ConfigurationPropertySources;
+import org.springframework.boot.env.YamlPropertySourceLoader;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.PropertySource;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 定期检查配置文件的修改时间，变化后重新读取csn.thread-pool并应用到ThreadPoolRegistry
+ * Spring Boot本身不会在运行时重新加载application.yml，这里直接读取文件，叠加在Environment现有的配置来源上绑定，不修改Environment：
+ * 命令行参数、系统属性、环境变量等优先级高于配置文件的来源仍然覆盖文件中的值，文件中没有的配置沿用其他配置文件
+ *
+ * @author shinan.chen
+ * @since 2026/10/16
+ */
+public class ThreadPoolConfigReloader implements InitializingBean, DisposableBean {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ThreadPoolConfigReloader.class);
+    private static final String PREFIX = "csn.thread-pool";
+    /**
+     * Spring Boot加载的配置文件在Environment中的名称前缀，后面是文件位置
+     */
+    private static final String CONFIG_FILE_SOURCE_PREFIX = "applicationConfig: [";
+
+    private final ThreadPoolProperties properties;
+    private final ThreadPoolRegistry registry;
+    private final ResourceLoader resourceLoader;
+    private final ConfigurableEnvironment environment;
+    /**
+     * 执行检查的单线程调度器
+     */
+    private ScheduledExecutorService scheduler;
+    private long lastModified;
+
+    public ThreadPoolConfigReloader(ThreadPoolProperties properties,
+                                    ThreadPoolRegistry registry,
+                                    ResourceLoader resourceLoader,
+                                    ConfigurableEnvironment environment) {
+        this.properties = properties;
+        this.registry = registry;
+        this.resourceLoader = resourceLoader;
+        this.environment = environment;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        long interval = properties.getReloadInterval().toMillis();
+        if (interval <= 0)
+            return;
+        lastModified = lastModified(resource());
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "thread-pool-config-reloader");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(this::check, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void destroy() {
+        if (scheduler != null)
+            scheduler.shutdownNow();
+    }
+
+    /**
+     * 配置文件的修改时间变化时重新加载
+     */
+    synchronized void check() {
+        Resource resource = resource();
+        long modified = lastModified(resource);
+        if (modified == 0L || modified == lastModified)
+            return;
+        lastModified = modified;
+        try {
+            reload(resource);
+        } catch (IOException | RuntimeException e) {
+            LOGGER.error("failed to reload thread pool configuration from {}", resource, e);
+        }
+    }
+
+    private void reload(Resource resource) throws IOException {
+        List<PropertySource<?>> loaded = new YamlPropertySourceLoader().load(resource.getDescription(), resource);
+        ThreadPoolProperties reloaded = new Binder(ConfigurationPropertySources.from(overlay(loaded)))
+                .bind(PREFIX, Bindable.of(ThreadPoolProperties.class))
+                .orElseGet(ThreadPoolProperties::new);
+        LOGGER.info("thread pool configuration changed, reloading from {}", resource);
+        registry.apply(reloaded.getPools());
+    }
+
+    /**
+     * 重新读取的配置放在Environment中第一个配置文件之前，优先级更高的来源保持在它之前；
+     * 启动时读取的同一个文件已经过时，跳过
+     */
+    private List<PropertySource<?>> overlay(List<PropertySource<?>> loaded) {
+        String stale = CONFIG_FILE_SOURCE_PREFIX + properties.getReloadLocation() + "]";
+        List<PropertySource<?>> sources = new ArrayList<>();
+        boolean inserted = false;
+        for (PropertySource<?> source : environment.getPropertySources()) {
+            String name = source.getName();
+            if (! inserted && name.startsWith(CONFIG_FILE_SOURCE_PREFIX)) {
+                sources.addAll(loaded);
+                inserted = true;
+            }
+            if (! name.startsWith(stale))
+                sources.add(source);
+        }
+        if (! inserted)
+            sources.addAll(loaded);
+        return sources;
+    }
+
+    private Resource resource() {
+        return resourceLoader.getResource(properties.getReloadLocation());
+    }
+
+    /**
+     * 返回资源的修改时间，资源不存在或无法获取时返回0，即暂不加载，文件创建后再加载
+     * 注意jar包内的资源返回的是jar文件本身的修改时间，所以reloadLocation应当是jar包外的文件
+     */
+    private static long lastModified(Resource resource) {
+        try {
+            return resource.exists() ? resource.lastModified() : 0L;
+        } catch (IOException e) {
+            return 0L;
+        }
+    }
+}
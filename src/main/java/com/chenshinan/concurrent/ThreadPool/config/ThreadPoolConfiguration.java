@@ -0,0 +1,31 @@
+package com.chenshinan.concurrent.ThreadPool.config;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.io.ResourceLoader;
+
+/**
+ * 注册按application.yml配置的命名线程池，以及配置热加载
+ *
+ * @author shinan.chen
+ * @since 2026/10/16
+ */
+@Configuration
+@EnableConfigurationProperties(ThreadPoolProperties.class)
+public class ThreadPoolConfiguration {
+
+    @Bean
+    public ThreadPoolRegistry threadPoolRegistry(ThreadPoolProperties properties) {
+        return new ThreadPoolRegistry(properties);
+    }
+
+    @Bean
+    public ThreadPoolConfigReloader threadPoolConfigReloader(ThreadPoolProperties properties,
+                                                             ThreadPoolRegistry registry,
+                                                             ResourceLoader resourceLoader,
+                                                             ConfigurableEnvironment environment) {
+        return new ThreadPoolConfigReloader(properties, registry, resourceLoader, environment);
+    }
+}
@@ -0,0 +1,118 @@
+package com.chenshinan.concurrent.ThreadPool.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 命名线程池的配置，对应application.yml中的csn.thread-pool
+ *
+ * @author shinan.chen
+ * @since 2026/10/16
+ */
+@ConfigurationProperties(prefix = "csn.thread-pool")
+public class ThreadPoolProperties {
+
+    /**
+     * 检查配置文件是否变化的间隔，为0时不检查
+     */
+    private Duration reloadInterval = Duration.ofSeconds(5);
+    /**
+     * 需要检查变化的配置文件，默认为工作目录下的config/application.yml，Spring Boot启动时也会读取该位置
+     * 必须是jar包外的file:位置，classpath:位置在打包部署后指向jar包内的文件，不会变化
+     */
+    private String reloadLocation = "file:./config/application.yml";
+    /**
+     * 按名称配置的线程池
+     */
+    private Map<String, Pool> pools = new LinkedHashMap<>();
+
+    public Duration getReloadInterval() {
+        return reloadInterval;
+    }
+
+    public void setReloadInterval(Duration reloadInterval) {
+        this.reloadInterval = reloadInterval;
+    }
+
+    public String getReloadLocation() {
+        return reloadLocation;
+    }
+
+    public void setReloadLocation(String reloadLocation) {
+        this.reloadLocation = reloadLocation;
+    }
+
+    public Map<String, Pool> getPools() {
+        return pools;
+    }
+
+    public void setPools(Map<String, Pool> pools) {
+        this.pools = pools;
+    }
+
+    /**
+     * 单个线程池的配置，除queueCapacity外都可以在运行时重新应用
+     */
+    public static class Pool {
+        private int corePoolSize = 1;
+        private int maximumPoolSize = 1;
+        private Duration keepAlive = Duration.ofSeconds(60);
+        private boolean allowCoreThreadTimeOut;
+        /**
+         * 等待队列容量，只在创建线程池时生效
+         */
+        private int queueCapacity = Integer.MAX_VALUE;
+
+        public int getCorePoolSize() {
+            return corePoolSize;
+        }
+
+        public void setCorePoolSize(int corePoolSize) {
+            this.corePoolSize = corePoolSize;
+        }
+
+        public int getMaximumPoolSize() {
+            return maximumPoolSize;
+        }
+
+        public void setMaximumPoolSize(int maximumPoolSize) {
+            this.maximumPoolSize = maximumPoolSize;
+        }
+
+        public Duration getKeepAlive() {
+            return keepAlive;
+        }
+
+        public void setKeepAlive(Duration keepAlive) {
+            this.keepAlive = keepAlive;
+        }
+
+        public boolean isAllowCoreThreadTimeOut() {
+            return allowCoreThreadTimeOut;
+        }
+
+        public void setAllowCoreThreadTimeOut(boolean allowCoreThreadTimeOut) {
+            this.allowCoreThreadTimeOut = allowCoreThreadTimeOut;
+        }
+
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+
+        public void setQueueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+        }
+
+        @Override
+        public String toString() {
+            return "Pool[core = " + corePoolSize +
+                    ", max = " + maximumPoolSize +
+                    ", keepAlive = " + keepAlive +
+                    ", allowCoreThreadTimeOut = " + allowCoreThreadTimeOut +
+                    ", queueCapacity = " + queueCapacity + "]";
+        }
+    }
+}
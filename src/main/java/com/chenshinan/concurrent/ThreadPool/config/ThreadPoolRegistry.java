@@ -0,0 +1,126 @@
+package com.chenshinan.concurrent.ThreadPool.config;
+
+import com.chenshinan.concurrent.ThreadPool.ThreadPoolExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 按配置创建并持有命名线程池，配置变化时在运行时重新应用，不需要重启
+ * 新增的名称创建新的线程池；配置中删除的线程池保持运行，直到应用关闭
+ *
+ * @author shinan.chen
+ * @since 2026/10/16
+ */
+public class ThreadPoolRegistry implements DisposableBean {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ThreadPoolRegistry.class);
+
+    private final Map<String, ThreadPoolExecutor> executors = new ConcurrentHashMap<>();
+
+    public ThreadPoolRegistry(ThreadPoolProperties properties) {
+        apply(properties.getPools());
+    }
+
+    /**
+     * 返回名称对应的线程池，不存在时返回null
+     */
+    public ThreadPoolExecutor get(String name) {
+        return executors.get(name);
+    }
+
+    public Map<String, ThreadPoolExecutor> getAll() {
+        return Collections.unmodifiableMap(executors);
+    }
+
+    /**
+     * 应用一组线程池配置：已存在的线程池调整大小、存活时间与核心线程超时，不存在的创建
+     * 某个线程池的配置不合法时跳过它并记录日志，不影响其他线程池；跳过的线程池保持原来的配置，不会只生效一部分
+     */
+    public synchronized void apply(Map<String, ThreadPoolProperties.Pool> pools) {
+        for (Map.Entry<String, ThreadPoolProperties.Pool> entry : pools.entrySet()) {
+            String name = entry.getKey();
+            ThreadPoolProperties.Pool pool = entry.getValue();
+            try {
+                validate(pool);
+                ThreadPoolExecutor executor = executors.get(name);
+                if (executor == null) {
+                    executors.put(name, create(name, pool));
+                    LOGGER.info("thread pool {} created: {}", name, pool);
+                } else {
+                    reconfigure(name, executor, pool);
+                    LOGGER.info("thread pool {} reconfigured: {}", name, pool);
+                }
+            } catch (IllegalArgumentException e) {
+                LOGGER.error("invalid configuration for thread pool {}: {}", name, pool, e);
+            }
+        }
+    }
+
+    /**
+     * 在修改线程池之前检查整个配置，与ThreadPoolExecutor的各个setter的校验一致，
+     * 否则前面的setter已经生效后，后面的setter才抛出异常，线程池停留在新旧混合的配置上
+     */
+    private static void validate(ThreadPoolProperties.Pool pool) {
+        if (pool.getCorePoolSize() < 0 || pool.getMaximumPoolSize() <= 0 ||
+                pool.getMaximumPoolSize() < pool.getCorePoolSize())
+            throw new IllegalArgumentException("require 0 <= core-pool-size <= maximum-pool-size and maximum-pool-size > 0");
+        if (pool.getKeepAlive() == null || pool.getKeepAlive().isNegative())
+            throw new IllegalArgumentException("keep-alive must not be negative");
+        if (pool.isAllowCoreThreadTimeOut() && pool.getKeepAlive().isZero())
+            throw new IllegalArgumentException("core thread timeout requires a positive keep-alive");
+        if (pool.getQueueCapacity() <= 0)
+            throw new IllegalArgumentException("queue-capacity must be positive");
+    }
+
+    private static ThreadPoolExecutor create(String name, ThreadPoolProperties.Pool pool) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(pool.getCorePoolSize(),
+                pool.getMaximumPoolSize(),
+                pool.getKeepAlive().toNanos(),
+                TimeUnit.NANOSECONDS,
+                new LinkedBlockingQueue<>(pool.getQueueCapacity()),
+                threadFactory(name),
+                new ThreadPoolExecutor.AbortPolicy());
+        executor.allowCoreThreadTimeOut(pool.isAllowCoreThreadTimeOut());
+        return executor;
+    }
+
+    /**
+     * 配置已经通过validate()检查，这里的每一步都不会失败
+     * 存活时间改为0时先关闭核心线程超时，否则先设置存活时间，避免合法的新配置被中间状态拒绝
+     * 线程池大小已由PoolSizingController、CgroupCpuSizer等组件调整时不再修改大小，否则双方轮流覆盖对方的设置
+     */
+    private static void reconfigure(String name, ThreadPoolExecutor executor, ThreadPoolProperties.Pool pool) {
+        if (pool.getKeepAlive().isZero() && executor.allowsCoreThreadTimeOut()) {
+            executor.allowCoreThreadTimeOut(pool.isAllowCoreThreadTimeOut());
+            executor.setKeepAliveTime(0L, TimeUnit.NANOSECONDS);
+        } else {
+            executor.setKeepAliveTime(pool.getKeepAlive().toNanos(), TimeUnit.NANOSECONDS);
+            executor.allowCoreThreadTimeOut(pool.isAllowCoreThreadTimeOut());
+        }
+        Object owner = executor.getPoolSizeOwner();
+        if (owner == null)
+            executor.setPoolSize(pool.getCorePoolSize(), pool.getMaximumPoolSize());
+        else
+            LOGGER.warn("size of thread pool {} is managed by {}, configured size ignored", name, owner);
+    }
+
+    private static ThreadFactory threadFactory(String name) {
+        AtomicInteger threadNumber = new AtomicInteger(1);
+        return r -> new Thread(r, name + "-" + threadNumber.getAndIncrement());
+    }
+
+    @Override
+    public void destroy() {
+        for (ThreadPoolExecutor executor : executors.values())
+            executor.shutdown();
+    }
+}
@@ -0,0 +1,249 @@
+package com.chenshinan.concurrent.ThreadPool;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * CgroupCpuSizer的行为测试：在临时目录中构造cgroup v1/v2的文件，验证配额、cpuset的解析与线程池调整
+ *
+ * @author shinan.chen
+ * @since 2026/10/16
+ */
+public class CgroupCpuSizerTest {
+
+    private Path root;
+    private Path procSelfCgroup;
+
+    @Before
+    public void setUp() throws IOException {
+        root = Files.createTempDirectory("cgroup");
+        procSelfCgroup = root.resolve("proc-self-cgroup");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        try (Stream<Path> paths = Files.walk(root)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    private void write(String relative, String content) throws IOException {
+        Path file = root.resolve(relative);
+        Files.createDirectories(file.getParent());
+        Files.write(file, (content + "\n").getBytes(StandardCharsets.UTF_8));
+    }
+
+    private int limit() {
+        return CgroupCpuSizer.cgroupLimit(root, procSelfCgroup);
+    }
+
+    @Test
+    public void v2CpuMaxIsRoundedUp() throws IOException {
+        write("cgroup.controllers", "cpuset cpu io memory");
+        write("proc-self-cgroup", "0::/kubepods/pod1/ctr");
+        write("kubepods/pod1/ctr/cpu.max", "250000 100000");
+        assertEquals(3, limit());
+    }
+
+    @Test
+    public void v2TakesTheTightestAncestorAndCpuset() throws IOException {
+        write("cgroup.controllers", "cpuset cpu");
+        write("proc-self-cgroup", "0::/kubepods/pod1/ctr");
+        write("kubepods/pod1/cpu.max", "200000 100000");
+        write("kubepods/pod1/ctr/cpu.max", "max 100000");
+        assertEquals(2, limit());
+
+        write("kubepods/pod1/ctr/cpuset.cpus.effective", "3");
+        assertEquals(1, limit());
+    }
+
+    @Test
+    public void v2UnlimitedWithoutQuotaOrCpuset() throws IOException {
+        write("cgroup.controllers", "cpu");
+        write("proc-self-cgroup", "0::/");
+        write("cpu.max", "max 100000");
+        assertEquals(Integer.MAX_VALUE, limit());
+    }
+
+    @Test
+    public void v2FallsBackToMountRootInsideContainer() throws IOException {
+        // 容器内只挂载了自己的cgroup，/proc/self/cgroup中的路径不存在
+        write("cgroup.controllers", "cpuset cpu");
+        write("proc-self-cgroup", "0::/kubepods/pod1/ctr");
+        write("cpu.max", "400000 100000");
+        write("cpuset.cpus.effective", "0-1,4-7");
+        assertEquals(4, limit());
+    }
+
+    @Test
+    public void v1WalksUpTheCpuHierarchy() throws IOException {
+        write("proc-self-cgroup", "4:cpu,cpuacct:/docker/abc\n3:cpuset:/docker/abc\n1:name=systemd:/docker/abc");
+        write("cpu,cpuacct/docker/abc/cpu.cfs_quota_us", "-1");
+        write("cpu,cpuacct/docker/abc/cpu.cfs_period_us", "100000");
+        write("cpu,cpuacct/docker/cpu.cfs_quota_us", "150000");
+        write("cpu,cpuacct/docker/cpu.cfs_period_us", "100000");
+        write("cpuset/docker/abc/cpuset.cpus", "0-7");
+        assertEquals(2, limit());
+
+        write("cpuset/docker/abc/cpuset.cpus", "5");
+        assertEquals(1, limit());
+    }
+
+    @Test
+    public void v1SupportsSeparateCpuMount() throws IOException {
+        write("proc-self-cgroup", "4:cpuacct,cpu:/");
+        write("cpuacct,cpu/cpu.cfs_quota_us", "300000");
+        write("cpuacct,cpu/cpu.cfs_period_us", "100000");
+        assertEquals(3, limit());
+    }
+
+    @Test
+    public void v1UnlimitedOrInvalidValuesAreIgnored() throws IOException {
+        write("proc-self-cgroup", "4:cpu:/\n3:cpuset:/");
+        write("cpu/cpu.cfs_quota_us", "-1");
+        write("cpu/cpu.cfs_period_us", "100000");
+        write("cpuset/cpuset.cpus", "3-1");
+        assertEquals(Integer.MAX_VALUE, limit());
+
+        write("cpuset/cpuset.cpus", "garbage");
+        assertEquals(Integer.MAX_VALUE, limit());
+    }
+
+    @Test
+    public void noCgroupFilesMeansUnlimited() {
+        assertEquals(Integer.MAX_VALUE, limit());
+        assertEquals(Runtime.getRuntime().availableProcessors(),
+                CgroupCpuSizer.effectiveParallelism(root, procSelfCgroup));
+    }
+
+    @Test
+    public void effectiveParallelismIsCappedByProcessors() throws IOException {
+        write("cgroup.controllers", "cpu");
+        write("proc-self-cgroup", "0::/");
+        write("cpu.max", "1000 100000");
+        assertEquals(1, CgroupCpuSizer.effectiveParallelism(root, procSelfCgroup));
+        write("cpu.max", "100000000 100000");
+        assertEquals(Math.min(1000, Runtime.getRuntime().availableProcessors()),
+                CgroupCpuSizer.effectiveParallelism(root, procSelfCgroup));
+    }
+
+    @Test
+    public void adjustResizesThePool() throws IOException {
+        write("cgroup.controllers", "cpu");
+        write("proc-self-cgroup", "0::/");
+        write("cpu.max", "200000 100000");
+        ThreadPoolExecutor executor = newExecutor();
+        try {
+            CgroupCpuSizer sizer = new CgroupCpuSizer(executor, 1D, 2D, 1, TimeUnit.HOURS, root, procSelfCgroup);
+            sizer.adjust();
+            int p = Math.min(2, Runtime.getRuntime().availableProcessors());
+            assertEquals(p, sizer.getParallelism());
+            assertEquals(p, executor.getCorePoolSize());
+            assertEquals(2 * p, executor.getMaximumPoolSize());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void adjustReportsFailureAndKeepsLastParallelism() throws IOException {
+        write("cgroup.controllers", "cpu");
+        write("proc-self-cgroup", "0::/");
+        write("cpu.max", "100000 100000");
+        IllegalStateException failure = new IllegalStateException("resize failed");
+        boolean[] failing = {false};
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(4, 4, 1, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), Executors.defaultThreadFactory(),
+                new ThreadPoolExecutor.AbortPolicy()) {
+            @Override
+            public int getCorePoolSize() {
+                if (failing[0])
+                    throw failure;
+                return super.getCorePoolSize();
+            }
+        };
+        Thread current = Thread.currentThread();
+        Thread.UncaughtExceptionHandler previous = current.getUncaughtExceptionHandler();
+        AtomicReference<Throwable> reported = new AtomicReference<Throwable>();
+        current.setUncaughtExceptionHandler((t, e) -> reported.set(e));
+        try {
+            CgroupCpuSizer sizer = new CgroupCpuSizer(executor, 1D, 1D, 1, TimeUnit.HOURS, root, procSelfCgroup);
+            sizer.adjust();
+            assertEquals(1, sizer.getParallelism());
+            assertEquals(1, executor.getCorePoolSize());
+
+            // 配额变化但调整失败：不抛出异常，保留上一次的并行度与线程池大小
+            write("cpu.max", "300000 100000");
+            failing[0] = true;
+            sizer.adjust();
+            failing[0] = false;
+            assertSame(failure, reported.get());
+            assertEquals(1, sizer.getParallelism());
+            assertEquals(1, executor.getCorePoolSize());
+
+            sizer.adjust();
+            int p = Math.min(3, Runtime.getRuntime().availableProcessors());
+            assertEquals(p, sizer.getParallelism());
+            assertEquals(p, executor.getCorePoolSize());
+        } finally {
+            current.setUncaughtExceptionHandler(previous);
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void adjustStopsOnceThePoolIsShutdown() throws IOException {
+        ThreadPoolExecutor executor = newExecutor();
+        CgroupCpuSizer sizer = new CgroupCpuSizer(executor, 1D, 1D, 1, TimeUnit.HOURS, root, procSelfCgroup);
+        executor.shutdown();
+        sizer.adjust();
+        assertEquals(0, sizer.getParallelism());
+        assertTrue(executor.isShutdown());
+    }
+
+    @Test
+    public void onlyOneSizingComponentMayOwnThePool() throws IOException {
+        ThreadPoolExecutor executor = newExecutor();
+        try {
+            CgroupCpuSizer sizer = new CgroupCpuSizer(executor, 1D, 1D, 1, TimeUnit.HOURS, root, procSelfCgroup);
+            CgroupCpuSizer other = new CgroupCpuSizer(executor, 1D, 1D, 1, TimeUnit.HOURS, root, procSelfCgroup);
+            sizer.start();
+            assertSame(sizer, executor.getPoolSizeOwner());
+            try {
+                other.start();
+                fail("expected IllegalStateException");
+            } catch (IllegalStateException expected) {
+            }
+            sizer.stop();
+            assertNull(executor.getPoolSizeOwner());
+            other.start();
+            assertSame(other, executor.getPoolSizeOwner());
+            other.stop();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static ThreadPoolExecutor newExecutor() {
+        return new ThreadPoolExecutor(1, 1, 1, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+                Executors.defaultThreadFactory(), new ThreadPoolExecutor.AbortPolicy());
+    }
+}
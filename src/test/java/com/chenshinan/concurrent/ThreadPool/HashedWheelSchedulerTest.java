@@ -0,0 +1,254 @@
+package com.chenshinan.concurrent.ThreadPool;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * HashedWheelScheduler的行为测试：跨层降级、取消、固定频率与固定延迟
+ *
+ * @author shinan.chen
+ * @since 2026/10/16
+ */
+public class HashedWheelSchedulerTest {
+
+    private ThreadPoolExecutor executor;
+    private HashedWheelScheduler scheduler;
+
+    @Before
+    public void setUp() {
+        executor = new ThreadPoolExecutor(2, 2, 1, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+                Executors.defaultThreadFactory(), new ThreadPoolExecutor.AbortPolicy());
+        // 每层4个桶、每tick 1ms：第0层覆盖4ms，第1层16ms，第2层64ms
+        scheduler = new HashedWheelScheduler(executor, 1, TimeUnit.MILLISECONDS, 4);
+    }
+
+    @After
+    public void tearDown() {
+        scheduler.stop();
+        executor.shutdownNow();
+    }
+
+    @Test(timeout = 5000L)
+    public void timeoutsCascadeDownFromHigherLevels() throws Exception {
+        long[] delays = {2L, 10L, 50L, 200L};
+        long[] firedAt = new long[delays.length];
+        CountDownLatch latch = new CountDownLatch(delays.length);
+        long start = System.nanoTime();
+        // 倒序添加，执行顺序只由到期时间决定
+        for (int i = delays.length - 1; i >= 0; i--) {
+            final int idx = i;
+            scheduler.schedule(() -> {
+                firedAt[idx] = System.nanoTime();
+                latch.countDown();
+            }, delays[i], TimeUnit.MILLISECONDS);
+        }
+        assertTrue(latch.await(3L, TimeUnit.SECONDS));
+        for (int i = 0; i < delays.length; i++) {
+            long elapsed = TimeUnit.NANOSECONDS.toMillis(firedAt[i] - start);
+            assertTrue("task " + i + " fired early: " + elapsed + "ms", elapsed >= delays[i]);
+            assertTrue("task " + i + " fired late: " + elapsed + "ms", elapsed < delays[i] + 500L);
+            if (i > 0)
+                assertTrue(firedAt[i] > firedAt[i - 1]);
+        }
+    }
+
+    @Test(timeout = 5000L)
+    public void cancelledTimeoutNeverRuns() throws Exception {
+        AtomicInteger runs = new AtomicInteger();
+        WheelTimeout far = scheduler.schedule(runs::incrementAndGet, 100L, TimeUnit.MILLISECONDS);
+        WheelTimeout periodic = scheduler.scheduleAtFixedRate(runs::incrementAndGet, 100L, 10L, TimeUnit.MILLISECONDS);
+        assertTrue(far.cancel());
+        assertTrue(periodic.cancel());
+        assertFalse(far.cancel());
+        assertTrue(far.isCancelled());
+
+        CountDownLatch marker = new CountDownLatch(1);
+        scheduler.schedule(marker::countDown, 250L, TimeUnit.MILLISECONDS);
+        assertTrue(marker.await(2L, TimeUnit.SECONDS));
+        assertEquals(0, runs.get());
+    }
+
+    @Test(timeout = 5000L)
+    public void expiredOneShotCannotBeCancelled() throws Exception {
+        CountDownLatch latch = new CountDownLatch(1);
+        WheelTimeout t = scheduler.schedule(latch::countDown, 1L, TimeUnit.MILLISECONDS);
+        assertTrue(latch.await(2L, TimeUnit.SECONDS));
+        assertTrue(t.isExpired());
+        assertFalse(t.cancel());
+        assertFalse(t.isCancelled());
+    }
+
+    @Test(timeout = 5000L)
+    public void fixedRateKeepsScheduleWhileFixedDelayWaitsAfterEachRun() throws Exception {
+        final int runs = 5;
+        final long period = 50L, work = 30L;
+        List<Long> rateStarts = new CopyOnWriteArrayList<Long>();
+        List<Long> delayStarts = new CopyOnWriteArrayList<Long>();
+        CountDownLatch latch = new CountDownLatch(2 * runs);
+        WheelTimeout rate = scheduler.scheduleAtFixedRate(
+                () -> record(rateStarts, runs, work, latch), 0L, period, TimeUnit.MILLISECONDS);
+        WheelTimeout delay = scheduler.scheduleWithFixedDelay(
+                () -> record(delayStarts, runs, work, latch), 0L, period, TimeUnit.MILLISECONDS);
+        assertTrue(latch.await(3L, TimeUnit.SECONDS));
+        rate.cancel();
+        delay.cancel();
+
+        // 固定频率：第n次在initialDelay + n * period开始，与执行耗时无关；首次到期最多晚一个tick，下界留出2ms
+        long rateSpan = TimeUnit.NANOSECONDS.toMillis(rateStarts.get(runs - 1) - rateStarts.get(0));
+        assertTrue("fixed rate span " + rateSpan + "ms", rateSpan >= (runs - 1) * period - 2L);
+        assertTrue("fixed rate span " + rateSpan + "ms", rateSpan < (runs - 1) * (period + work));
+        // 固定延迟：相邻两次开始的间隔至少为执行耗时加上延迟
+        for (int i = 1; i < runs; i++) {
+            long gap = TimeUnit.NANOSECONDS.toMillis(delayStarts.get(i) - delayStarts.get(i - 1));
+            assertTrue("fixed delay gap " + gap + "ms", gap >= period + work);
+        }
+    }
+
+    @Test(timeout = 5000L)
+    public void periodicTaskStopsAfterThrowing() throws Exception {
+        AtomicInteger runs = new AtomicInteger();
+        CountDownLatch first = new CountDownLatch(1);
+        scheduler.scheduleAtFixedRate(() -> {
+            runs.incrementAndGet();
+            first.countDown();
+            throw new IllegalStateException("boom");
+        }, 0L, 5L, TimeUnit.MILLISECONDS);
+        assertTrue(first.await(2L, TimeUnit.SECONDS));
+        Thread.sleep(100L);
+        assertEquals(1, runs.get());
+    }
+
+    @Test(timeout = 5000L)
+    public void rejectedOneShotIsCancelledAndCounted() throws Exception {
+        executor.shutdown();
+        WheelTimeout t = scheduler.schedule(() -> {
+        }, 1L, TimeUnit.MILLISECONDS);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2L);
+        while (!t.isCancelled() && System.nanoTime() < deadline)
+            Thread.sleep(5L);
+        assertTrue(t.isCancelled());
+        assertEquals(1L, scheduler.getRejectedCount());
+    }
+
+    @Test(timeout = 5000L)
+    public void silentlyDiscardingPolicyStillCountsRejection() throws Exception {
+        // 唯一的工作者被占用、同步队列无法入队：DiscardPolicy不抛出异常，也要感知到未被接受
+        ThreadPoolExecutor saturated = new ThreadPoolExecutor(1, 1, 1, TimeUnit.SECONDS,
+                new SynchronousQueue<Runnable>(), Executors.defaultThreadFactory(),
+                new ThreadPoolExecutor.DiscardPolicy());
+        HashedWheelScheduler wheel = new HashedWheelScheduler(saturated, 1, TimeUnit.MILLISECONDS, 4);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            saturated.execute(() -> {
+                try {
+                    release.await();
+                } catch (InterruptedException ignore) {
+                }
+            });
+            WheelTimeout oneShot = wheel.schedule(() -> {
+            }, 1L, TimeUnit.MILLISECONDS);
+            AtomicInteger runs = new AtomicInteger();
+            WheelTimeout periodic = wheel.scheduleAtFixedRate(runs::incrementAndGet, 1L, 20L, TimeUnit.MILLISECONDS);
+            awaitTrue(oneShot::isCancelled);
+            awaitTrue(() -> wheel.getRejectedCount() >= 2L);
+            // 周期任务跳过被拒绝的那次执行，线程池空出来后继续执行
+            assertFalse(periodic.isCancelled());
+            release.countDown();
+            awaitTrue(() -> runs.get() >= 2);
+            periodic.cancel();
+        } finally {
+            release.countDown();
+            wheel.stop();
+            saturated.shutdownNow();
+        }
+    }
+
+    @Test(timeout = 5000L)
+    public void timeoutDiscardedFromTheQueueIsRescheduled() throws Exception {
+        ThreadPoolExecutor single = new ThreadPoolExecutor(1, 1, 1, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(1), Executors.defaultThreadFactory(),
+                new ThreadPoolExecutor.DiscardOldestPolicy());
+        HashedWheelScheduler wheel = new HashedWheelScheduler(single, 1, TimeUnit.MILLISECONDS, 4);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            single.execute(() -> {
+                try {
+                    release.await();
+                } catch (InterruptedException ignore) {
+                }
+            });
+            AtomicInteger runs = new AtomicInteger();
+            WheelTimeout periodic = wheel.scheduleWithFixedDelay(runs::incrementAndGet, 0L, 10L, TimeUnit.MILLISECONDS);
+            // 等到期的定时任务进入队列，再提交一个任务把它挤出队列
+            awaitTrue(() -> single.getQueue().size() == 1);
+            single.execute(() -> {
+            });
+            awaitTrue(() -> wheel.getRejectedCount() >= 1L);
+            assertFalse(periodic.isCancelled());
+            release.countDown();
+            awaitTrue(() -> runs.get() >= 1);
+            periodic.cancel();
+        } finally {
+            release.countDown();
+            wheel.stop();
+            single.shutdownNow();
+        }
+    }
+
+    @Test(timeout = 5000L)
+    public void stopReturnsAndCancelsPendingTimeouts() throws Exception {
+        AtomicInteger runs = new AtomicInteger();
+        WheelTimeout near = scheduler.schedule(runs::incrementAndGet, 200L, TimeUnit.MILLISECONDS);
+        WheelTimeout far = scheduler.scheduleAtFixedRate(runs::incrementAndGet, 10L, 1L, TimeUnit.SECONDS);
+        WheelTimeout cancelled = scheduler.schedule(runs::incrementAndGet, 300L, TimeUnit.MILLISECONDS);
+        cancelled.cancel();
+        Thread.sleep(20L);
+
+        Set<WheelTimeout> unprocessed = scheduler.stop();
+        assertEquals(new HashSet<WheelTimeout>(Arrays.asList(near, far)), unprocessed);
+        assertTrue(near.isCancelled());
+        assertTrue(far.isCancelled());
+        assertTrue(scheduler.stop().isEmpty());
+        Thread.sleep(250L);
+        assertEquals(0, runs.get());
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(3L);
+        while (! condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline);
+            Thread.sleep(2L);
+        }
+    }
+
+    private static void record(List<Long> starts, int runs, long work, CountDownLatch latch) {
+        if (starts.size() >= runs)
+            return;
+        starts.add(System.nanoTime());
+        try {
+            Thread.sleep(work);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        latch.countDown();
+    }
+}
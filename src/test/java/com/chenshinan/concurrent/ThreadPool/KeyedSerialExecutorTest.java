@@ -0,0 +1,160 @@
+package com.chenshinan.concurrent.ThreadPool;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * KeyedSerialExecutor的行为测试：同一key的任务按提交顺序串行执行，执行者被拒绝或丢弃后key被清理且不影响其他key
+ *
+ * @author shinan.chen
+ * @since 2026/10/16
+ */
+public class KeyedSerialExecutorTest {
+
+    private ThreadPoolExecutor executor;
+
+    @After
+    public void tearDown() {
+        if (executor != null)
+            executor.shutdownNow();
+    }
+
+    /**
+     * 单线程、等待队列容量为1的线程池，返回前用一个阻塞在gate上的任务占住唯一的工作者
+     */
+    private ThreadPoolExecutor newBlockedExecutor(RejectedExecutionHandler handler, CountDownLatch gate)
+            throws InterruptedException {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 1, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(1), Executors.defaultThreadFactory(), handler);
+        CountDownLatch started = new CountDownLatch(1);
+        executor.execute(() -> {
+            started.countDown();
+            try {
+                gate.await();
+            } catch (InterruptedException ignore) {
+            }
+        });
+        started.await();
+        return executor;
+    }
+
+    @Test(timeout = 20000L)
+    public void tasksOfTheSameKeyRunInOrderAndNeverOverlap() throws Exception {
+        executor = new ThreadPoolExecutor(4, 4, 1, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+                Executors.defaultThreadFactory(), new ThreadPoolExecutor.AbortPolicy());
+        KeyedSerialExecutor<Integer> serial = new KeyedSerialExecutor<Integer>(executor, 4);
+        final int keys = 16;
+        final int perKey = 500;
+        int[] next = new int[keys];
+        AtomicBoolean[] running = new AtomicBoolean[keys];
+        for (int k = 0; k < keys; k++)
+            running[k] = new AtomicBoolean();
+        AtomicInteger outOfOrder = new AtomicInteger();
+        AtomicInteger overlapped = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(keys * perKey);
+        for (int i = 0; i < perKey; i++) {
+            for (int k = 0; k < keys; k++) {
+                final int key = k;
+                final int seq = i;
+                serial.execute(key, () -> {
+                    if (! running[key].compareAndSet(false, true))
+                        overlapped.incrementAndGet();
+                    // 同一key的任务不会并发执行，next[key]只由当前执行者读写，前后任务之间由线程池的入队/出队建立可见性
+                    if (next[key] != seq)
+                        outOfOrder.incrementAndGet();
+                    next[key] = seq + 1;
+                    running[key].set(false);
+                    done.countDown();
+                });
+            }
+        }
+        assertTrue(done.await(15L, TimeUnit.SECONDS));
+        assertEquals(0, overlapped.get());
+        assertEquals(0, outOfOrder.get());
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2L);
+        while (serial.getActiveKeyCount() != 0 && System.nanoTime() < deadline)
+            Thread.sleep(1L);
+        assertEquals(0, serial.getActiveKeyCount());
+    }
+
+    @Test(timeout = 5000L)
+    public void rejectedKeyIsClearedAndOtherKeysKeepFifo() throws Exception {
+        CountDownLatch gate = new CountDownLatch(1);
+        executor = newBlockedExecutor(new ThreadPoolExecutor.AbortPolicy(), gate);
+        KeyedSerialExecutor<String> serial = new KeyedSerialExecutor<String>(executor);
+        List<String> order = new CopyOnWriteArrayList<String>();
+
+        // a的执行者占满等待队列，之后a的任务只追加到它的串行队列中
+        serial.execute("a", () -> order.add("a1"));
+        try {
+            serial.execute("b", () -> order.add("b1"));
+            fail("expected RejectedExecutionException");
+        } catch (RejectedExecutionException expected) {
+        }
+        assertEquals(1, serial.getActiveKeyCount());
+        serial.execute("a", () -> order.add("a2"));
+        serial.execute("a", () -> order.add("a3"));
+
+        gate.countDown();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2L);
+        while (order.size() < 3 && System.nanoTime() < deadline)
+            Thread.sleep(1L);
+        assertEquals(Arrays.asList("a1", "a2", "a3"), new ArrayList<String>(order));
+
+        // 被拒绝的key之后提交的任务重新创建执行者，正常执行
+        CountDownLatch b2 = new CountDownLatch(1);
+        serial.execute("b", () -> {
+            order.add("b2");
+            b2.countDown();
+        });
+        assertTrue(b2.await(2L, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList("a1", "a2", "a3", "b2"), new ArrayList<String>(order));
+    }
+
+    @Test(timeout = 5000L)
+    public void discardedRunnerClearsKeyAndLaterTasksStillRun() throws Exception {
+        CountDownLatch gate = new CountDownLatch(1);
+        executor = newBlockedExecutor(new ThreadPoolExecutor.DiscardOldestPolicy(), gate);
+        KeyedSerialExecutor<String> serial = new KeyedSerialExecutor<String>(executor);
+        List<String> order = new CopyOnWriteArrayList<String>();
+
+        serial.execute("a", () -> order.add("a1"));
+        assertEquals(1, serial.getActiveKeyCount());
+        // 等待队列已满，DiscardOldestPolicy丢弃排在最前面的a的执行者
+        CountDownLatch x = new CountDownLatch(1);
+        executor.execute(() -> {
+            order.add("x");
+            x.countDown();
+        });
+        assertEquals(0, serial.getActiveKeyCount());
+
+        gate.countDown();
+        assertTrue(x.await(2L, TimeUnit.SECONDS));
+        CountDownLatch a2 = new CountDownLatch(1);
+        serial.execute("a", () -> {
+            order.add("a2");
+            a2.countDown();
+        });
+        assertTrue(a2.await(2L, TimeUnit.SECONDS));
+        assertFalse(order.contains("a1"));
+        assertEquals(Arrays.asList("x", "a2"), new ArrayList<String>(order));
+    }
+}
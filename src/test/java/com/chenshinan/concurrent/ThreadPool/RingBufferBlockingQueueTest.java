@@ -0,0 +1,256 @@
+package com.chenshinan.concurrent.ThreadPool;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * RingBufferBlockingQueue的行为测试：环绕、删除、批量取出与阻塞等待
+ *
+ * @author shinan.chen
+ * @since 2026/10/16
+ */
+public class RingBufferBlockingQueueTest {
+
+    private static Runnable[] tasks(int n) {
+        Runnable[] tasks = new Runnable[n];
+        for (int i = 0; i < n; i++)
+            tasks[i] = new Named(i);
+        return tasks;
+    }
+
+    @Test
+    public void capacityIsRoundedUpToPowerOfTwo() {
+        RingBufferBlockingQueue q = new RingBufferBlockingQueue(3);
+        assertEquals(4, q.remainingCapacity());
+        Runnable[] t = tasks(5);
+        for (int i = 0; i < 4; i++)
+            assertTrue(q.offer(t[i]));
+        assertFalse(q.offer(t[4]));
+        assertEquals(4, q.size());
+        assertEquals(0, q.remainingCapacity());
+    }
+
+    @Test
+    public void capacityOfOneDoesNotOverwriteUnconsumedSlot() {
+        RingBufferBlockingQueue q = new RingBufferBlockingQueue(1);
+        Runnable[] t = tasks(3);
+        assertTrue(q.offer(t[0]));
+        assertTrue(q.offer(t[1]));
+        assertFalse(q.offer(t[2]));
+        assertSame(t[0], q.poll());
+        assertSame(t[1], q.poll());
+        assertNull(q.poll());
+    }
+
+    @Test
+    public void keepsFifoOrderAcrossManyWraparounds() {
+        RingBufferBlockingQueue q = new RingBufferBlockingQueue(4);
+        Runnable[] t = tasks(1000);
+        int next = 0;
+        for (int i = 0; i < t.length; i++) {
+            assertTrue(q.offer(t[i]));
+            // 保持队列半满，使head与tail绕环很多圈
+            if (q.size() == 3)
+                assertSame(t[next++], q.poll());
+        }
+        while (next < t.length)
+            assertSame(t[next++], q.poll());
+        assertNull(q.poll());
+        assertTrue(q.isEmpty());
+    }
+
+    @Test
+    public void removeSkipsElementAndKeepsCapacityConsistent() {
+        RingBufferBlockingQueue q = new RingBufferBlockingQueue(4);
+        Runnable[] t = tasks(6);
+        for (int i = 0; i < 4; i++)
+            q.offer(t[i]);
+
+        // 中间的墓碑在被跳过之前仍占用槽位
+        assertTrue(q.remove(t[1]));
+        assertFalse(q.remove(t[1]));
+        assertEquals(3, q.size());
+        assertEquals(0, q.remainingCapacity());
+        assertFalse(q.offer(t[4]));
+
+        // 删除队首时连同其后的墓碑一起释放
+        assertTrue(q.remove(t[0]));
+        assertEquals(2, q.size());
+        assertEquals(2, q.remainingCapacity());
+        assertTrue(q.offer(t[4]));
+        assertTrue(q.offer(t[5]));
+
+        assertSame(t[2], q.peek());
+        assertEquals(Arrays.asList(t[2], t[3], t[4], t[5]), drain(q));
+    }
+
+    @Test
+    public void iteratorSkipsRemovedElements() {
+        RingBufferBlockingQueue q = new RingBufferBlockingQueue(8);
+        Runnable[] t = tasks(3);
+        for (Runnable r : t)
+            q.offer(r);
+        q.remove(t[1]);
+        List<Runnable> seen = new ArrayList<Runnable>();
+        for (Runnable r : q)
+            seen.add(r);
+        assertEquals(Arrays.asList(t[0], t[2]), seen);
+    }
+
+    @Test
+    public void drainToRespectsMaxElementsAndSkipsTombstones() {
+        RingBufferBlockingQueue q = new RingBufferBlockingQueue(8);
+        Runnable[] t = tasks(5);
+        for (Runnable r : t)
+            q.offer(r);
+        q.remove(t[2]);
+
+        List<Runnable> first = new ArrayList<Runnable>();
+        assertEquals(2, q.drainTo(first, 2));
+        assertEquals(Arrays.asList(t[0], t[1]), first);
+
+        List<Runnable> rest = new ArrayList<Runnable>();
+        assertEquals(2, q.drainTo(rest));
+        assertEquals(Arrays.asList(t[3], t[4]), rest);
+        assertTrue(q.isEmpty());
+        assertEquals(8, q.remainingCapacity());
+    }
+
+    @Test
+    public void offerAllStopsWhenFull() {
+        RingBufferBlockingQueue q = new RingBufferBlockingQueue(4);
+        Runnable[] t = tasks(6);
+        q.offer(t[0]);
+        assertEquals(3, q.offerAll(Arrays.asList(t[1], t[2], t[3], t[4], t[5])));
+        assertEquals(Arrays.asList(t[0], t[1], t[2], t[3]), drain(q));
+    }
+
+    @Test(timeout = 5000L)
+    public void takeBlocksUntilAnElementIsOffered() throws Exception {
+        RingBufferBlockingQueue q = new RingBufferBlockingQueue(4);
+        Runnable task = new Named(0);
+        AtomicReference<Runnable> taken = new AtomicReference<Runnable>();
+        CountDownLatch started = new CountDownLatch(1);
+        Thread consumer = new Thread(() -> {
+            started.countDown();
+            try {
+                taken.set(q.take());
+            } catch (InterruptedException ignore) {
+            }
+        });
+        consumer.start();
+        started.await();
+        Thread.sleep(50L);
+        assertNull(taken.get());
+        q.offer(task);
+        consumer.join(2000L);
+        assertSame(task, taken.get());
+    }
+
+    @Test(timeout = 5000L)
+    public void putBlocksUntilSpaceIsAvailable() throws Exception {
+        RingBufferBlockingQueue q = new RingBufferBlockingQueue(2);
+        Runnable[] t = tasks(3);
+        q.put(t[0]);
+        q.put(t[1]);
+        Thread producer = new Thread(() -> {
+            try {
+                q.put(t[2]);
+            } catch (InterruptedException ignore) {
+            }
+        });
+        producer.start();
+        Thread.sleep(50L);
+        assertEquals(2, q.size());
+        assertSame(t[0], q.take());
+        producer.join(2000L);
+        assertFalse(producer.isAlive());
+        assertEquals(Arrays.asList(t[1], t[2]), drain(q));
+    }
+
+    @Test(timeout = 5000L)
+    public void timedPollAndOfferReturnOnTimeout() throws Exception {
+        RingBufferBlockingQueue q = new RingBufferBlockingQueue(2);
+        long start = System.nanoTime();
+        assertNull(q.poll(20L, TimeUnit.MILLISECONDS));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(20L));
+
+        Runnable[] t = tasks(3);
+        assertTrue(q.offer(t[0], 20L, TimeUnit.MILLISECONDS));
+        assertTrue(q.offer(t[1], 20L, TimeUnit.MILLISECONDS));
+        assertFalse(q.offer(t[2], 20L, TimeUnit.MILLISECONDS));
+        assertSame(t[0], q.poll(20L, TimeUnit.MILLISECONDS));
+    }
+
+    @Test(timeout = 10000L)
+    public void concurrentProducersAndConsumersLoseNothing() throws Exception {
+        final int producers = 4, perProducer = 10000;
+        RingBufferBlockingQueue q = new RingBufferBlockingQueue(64);
+        Runnable poison = new Named(-1);
+        List<Thread> threads = new ArrayList<Thread>();
+        int[] consumed = new int[2];
+        for (int c = 0; c < consumed.length; c++) {
+            final int id = c;
+            threads.add(new Thread(() -> {
+                try {
+                    while (q.take() != poison)
+                        consumed[id]++;
+                } catch (InterruptedException ignore) {
+                }
+            }));
+        }
+        for (int p = 0; p < producers; p++) {
+            threads.add(new Thread(() -> {
+                try {
+                    for (int i = 0; i < perProducer; i++)
+                        q.put(new Named(i));
+                } catch (InterruptedException ignore) {
+                }
+            }));
+        }
+        for (Thread t : threads)
+            t.start();
+        for (Thread t : threads.subList(consumed.length, threads.size()))
+            t.join();
+        for (int c = 0; c < consumed.length; c++)
+            q.put(poison);
+        for (Thread t : threads.subList(0, consumed.length))
+            t.join();
+        assertEquals(producers * perProducer, consumed[0] + consumed[1]);
+    }
+
+    private static List<Runnable> drain(RingBufferBlockingQueue q) {
+        List<Runnable> list = new ArrayList<Runnable>();
+        q.drainTo(list);
+        return list;
+    }
+
+    private static final class Named implements Runnable {
+        final int id;
+
+        Named(int id) {
+            this.id = id;
+        }
+
+        @Override
+        public void run() {
+        }
+
+        @Override
+        public String toString() {
+            return "task-" + id;
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.chenshinan.concurrent.ThreadPool;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * WeightedFairBlockingQueue的行为测试：差额轮询的权重、租户容量与拒绝计数
+ *
+ * @author shinan.chen
+ * @since 2026/10/16
+ */
+public class WeightedFairBlockingQueueTest {
+
+    private static TenantTask task(Object tenant) {
+        return new TenantTask(tenant, () -> {
+        });
+    }
+
+    private static List<Object> tenantsOf(List<Runnable> tasks) {
+        List<Object> tenants = new ArrayList<Object>();
+        for (Runnable r : tasks)
+            tenants.add(r instanceof TenantTask ? ((TenantTask) r).getTenant() : WeightedFairBlockingQueue.DEFAULT_TENANT);
+        return tenants;
+    }
+
+    @Test
+    public void dequeuesInProportionToWeights() {
+        WeightedFairBlockingQueue q = new WeightedFairBlockingQueue();
+        q.setTenant("a", 3, 100);
+        q.setTenant("b", 1, 100);
+        for (int i = 0; i < 6; i++) {
+            q.offer(task("a"));
+            q.offer(task("b"));
+        }
+        List<Runnable> out = new ArrayList<Runnable>();
+        q.drainTo(out);
+        assertEquals(Arrays.<Object>asList("a", "a", "a", "b", "a", "a", "a", "b", "b", "b", "b", "b"),
+                tenantsOf(out));
+    }
+
+    @Test
+    public void backloggedTenantDoesNotStarveOthers() {
+        WeightedFairBlockingQueue q = new WeightedFairBlockingQueue();
+        for (int i = 0; i < 1000; i++)
+            q.offer(task("heavy"));
+        Runnable plain = () -> {
+        };
+        q.offer(task("light"));
+        q.offer(plain);
+        List<Runnable> out = new ArrayList<Runnable>();
+        q.drainTo(out, 3);
+        assertEquals(Arrays.<Object>asList("heavy", "light", WeightedFairBlockingQueue.DEFAULT_TENANT),
+                tenantsOf(out));
+        assertSame(plain, out.get(2));
+        assertEquals(999, q.size());
+    }
+
+    @Test
+    public void fifoWithinATenant() {
+        WeightedFairBlockingQueue q = new WeightedFairBlockingQueue();
+        TenantTask[] tasks = new TenantTask[5];
+        for (int i = 0; i < tasks.length; i++)
+            q.offer(tasks[i] = task("a"));
+        for (TenantTask t : tasks)
+            assertSame(t, q.poll());
+        assertNull(q.poll());
+    }
+
+    @Test
+    public void fullTenantIsRejectedWithoutAffectingOthers() throws Exception {
+        WeightedFairBlockingQueue q = new WeightedFairBlockingQueue(1, 100);
+        q.setTenant("a", 1, 2);
+        assertTrue(q.offer(task("a")));
+        assertTrue(q.offer(task("a")));
+        assertFalse(q.offer(task("a")));
+        assertFalse(q.offer(task("a"), 10L, TimeUnit.MILLISECONDS));
+        assertEquals(2L, q.getTenantRejectedCount("a"));
+
+        assertTrue(q.offer(task("b")));
+        assertEquals(0L, q.getTenantRejectedCount("b"));
+        assertEquals(2, q.getTenantQueueSize("a"));
+        assertEquals(3, q.size());
+
+        // 出队后腾出空间
+        assertEquals("a", ((TenantTask) q.poll()).getTenant());
+        assertTrue(q.offer(task("a")));
+    }
+
+    @Test
+    public void defaultCapacityAppliesToUnconfiguredTenants() {
+        WeightedFairBlockingQueue q = new WeightedFairBlockingQueue(1, 1);
+        assertTrue(q.offer(task("x")));
+        assertFalse(q.offer(task("x")));
+        assertEquals(1L, q.getTenantRejectedCount("x"));
+        assertTrue(q.offer(task("y")));
+    }
+
+    @Test
+    public void rejectedCountSurvivesTenantEviction() {
+        WeightedFairBlockingQueue q = new WeightedFairBlockingQueue(1, 1);
+        assertTrue(q.offer(task("x")));
+        assertFalse(q.offer(task("x")));
+        q.poll();
+        assertFalse(q.getTenants().contains("x"));
+        assertEquals(1L, q.getTenantRejectedCount("x"));
+
+        assertTrue(q.offer(task("x")));
+        assertFalse(q.offer(task("x")));
+        assertEquals(2L, q.getTenantRejectedCount("x"));
+    }
+
+    @Test(timeout = 5000L)
+    public void putBlocksOnlyTheFullTenant() throws Exception {
+        WeightedFairBlockingQueue q = new WeightedFairBlockingQueue();
+        q.setTenant("a", 1, 1);
+        q.put(task("a"));
+        CountDownLatch putDone = new CountDownLatch(1);
+        Thread producer = new Thread(() -> {
+            try {
+                q.put(task("a"));
+                putDone.countDown();
+            } catch (InterruptedException ignore) {
+            }
+        });
+        producer.start();
+        assertFalse(putDone.await(50L, TimeUnit.MILLISECONDS));
+        // 其他租户不受影响
+        q.put(task("b"));
+        assertEquals(2, q.size());
+
+        assertEquals("a", ((TenantTask) q.take()).getTenant());
+        assertTrue(putDone.await(2L, TimeUnit.SECONDS));
+        assertEquals(1, q.getTenantQueueSize("a"));
+    }
+
+    @Test
+    public void idleUnconfiguredTenantsAreEvicted() {
+        WeightedFairBlockingQueue q = new WeightedFairBlockingQueue();
+        q.setTenant("configured", 2, 10);
+        TenantTask t = task("transient");
+        q.offer(t);
+        q.offer(task("configured"));
+        assertTrue(q.getTenants().contains("transient"));
+        assertTrue(q.remove(t));
+        q.poll();
+        assertEquals(Arrays.<Object>asList("configured"), q.getTenants());
+        assertTrue(q.isEmpty());
+    }
+
+    @Test(timeout = 5000L)
+    public void poolRunsTenantsByWeight() throws Exception {
+        WeightedFairBlockingQueue q = new WeightedFairBlockingQueue();
+        q.setTenant("a", 2, 100);
+        q.setTenant("b", 1, 100);
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 1, TimeUnit.SECONDS, q,
+                Executors.defaultThreadFactory(), new ThreadPoolExecutor.AbortPolicy());
+        try {
+            CountDownLatch release = new CountDownLatch(1);
+            executor.execute(() -> {
+                try {
+                    release.await();
+                } catch (InterruptedException ignore) {
+                }
+            });
+            List<Object> order = new CopyOnWriteArrayList<Object>();
+            CountDownLatch done = new CountDownLatch(6);
+            for (int i = 0; i < 3; i++) {
+                for (String tenant : new String[]{"b", "a"}) {
+                    executor.execute(new TenantTask(tenant, () -> {
+                        order.add(tenant);
+                        done.countDown();
+                    }));
+                }
+            }
+            release.countDown();
+            assertTrue(done.await(2L, TimeUnit.SECONDS));
+            assertEquals(Arrays.<Object>asList("b", "a", "a", "b", "a", "b"), order);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.chenshinan.concurrent.ThreadPool;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 工作窃取模式的行为测试：本地队列中的任务被其他工作者窃取且只执行一次，shutdownNow时任务不丢失也不重复
+ *
+ * @author shinan.chen
+ * @since 2026/10/16
+ */
+public class WorkStealingTest {
+
+    private ThreadPoolExecutor executor;
+
+    private static ThreadPoolExecutor newExecutor(int threads) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 1, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), Executors.defaultThreadFactory(),
+                new ThreadPoolExecutor.AbortPolicy());
+        executor.setWorkStealing(true);
+        executor.prestartAllCoreThreads();
+        return executor;
+    }
+
+    @After
+    public void tearDown() {
+        if (executor != null)
+            executor.shutdownNow();
+    }
+
+    @Test(timeout = 10000L)
+    public void blockedOwnerTasksAreStolenExactlyOnce() throws Exception {
+        executor = newExecutor(4);
+        final int children = 500;
+        AtomicIntegerArray runs = new AtomicIntegerArray(children);
+        CountDownLatch done = new CountDownLatch(children);
+        AtomicInteger stolen = new AtomicInteger();
+        CountDownLatch parentFinished = new CountDownLatch(1);
+        executor.execute(() -> {
+            Thread owner = Thread.currentThread();
+            for (int i = 0; i < children; i++) {
+                final int index = i;
+                executor.execute(() -> {
+                    if (Thread.currentThread() != owner)
+                        stolen.incrementAndGet();
+                    runs.incrementAndGet(index);
+                    done.countDown();
+                });
+            }
+            // 所有者一直阻塞，子任务只能被其他工作者窃取
+            try {
+                done.await(5L, TimeUnit.SECONDS);
+            } catch (InterruptedException ignore) {
+            }
+            parentFinished.countDown();
+        });
+        assertTrue(done.await(5L, TimeUnit.SECONDS));
+        parentFinished.await();
+        assertEquals(children, stolen.get());
+        for (int i = 0; i < children; i++)
+            assertEquals("child " + i, 1, runs.get(i));
+    }
+
+    @Test(timeout = 20000L)
+    public void recursiveSubmissionsRunExactlyOnce() throws Exception {
+        executor = newExecutor(4);
+        final int parents = 50;
+        final int children = 200;
+        AtomicIntegerArray runs = new AtomicIntegerArray(parents * children);
+        CountDownLatch done = new CountDownLatch(parents * children);
+        for (int p = 0; p < parents; p++) {
+            final int base = p * children;
+            executor.execute(() -> {
+                for (int i = 0; i < children; i++) {
+                    final int index = base + i;
+                    executor.execute(() -> {
+                        runs.incrementAndGet(index);
+                        done.countDown();
+                    });
+                }
+            });
+        }
+        assertTrue(done.await(15L, TimeUnit.SECONDS));
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5L, TimeUnit.SECONDS));
+        for (int i = 0; i < parents * children; i++)
+            assertEquals("task " + i, 1, runs.get(i));
+    }
+
+    @Test(timeout = 10000L)
+    public void shutdownNowReturnsEveryUnrunLocalTask() throws Exception {
+        executor = newExecutor(2);
+        final int children = 300;
+        CountDownLatch submitted = new CountDownLatch(1);
+        CountDownLatch gate = new CountDownLatch(1);
+        Set<Runnable> executed = Collections.synchronizedSet(
+                Collections.newSetFromMap(new IdentityHashMap<Runnable, Boolean>()));
+        AtomicInteger runCount = new AtomicInteger();
+        executor.execute(() -> {
+            for (int i = 0; i < children; i++) {
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        executed.add(this);
+                        runCount.incrementAndGet();
+                        try {
+                            gate.await();
+                        } catch (InterruptedException ignore) {
+                        }
+                    }
+                });
+            }
+            submitted.countDown();
+            try {
+                gate.await();
+            } catch (InterruptedException ignore) {
+            }
+        });
+        submitted.await();
+        List<Runnable> pending = executor.shutdownNow();
+        gate.countDown();
+        assertTrue(executor.awaitTermination(5L, TimeUnit.SECONDS));
+        assertEquals(runCount.get(), executed.size());
+        for (Runnable r : pending)
+            assertTrue("returned task also ran", ! executed.contains(r));
+        assertEquals(children, executed.size() + pending.size());
+    }
+}
@@ -0,0 +1,160 @@
+package com.chenshinan.concurrent.ThreadPool;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 工作者phase/interruptClaim握手的行为测试：中断空闲工作者的操作不会中断正在执行的任务，shutdownNow会中断正在执行的任务
+ *
+ * @author shinan.chen
+ * @since 2026/10/16
+ */
+public class WorkerInterruptTest {
+
+    private ThreadPoolExecutor executor;
+
+    private static ThreadPoolExecutor newExecutor(int core, int max) {
+        return new ThreadPoolExecutor(core, max, 1, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+                Executors.defaultThreadFactory(), new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @After
+    public void tearDown() {
+        if (executor != null)
+            executor.shutdownNow();
+    }
+
+    @Test(timeout = 5000L)
+    public void shutdownInterruptsOnlyIdleWorkers() throws Exception {
+        executor = newExecutor(2, 2);
+        assertEquals(2, executor.prestartAllCoreThreads());
+        CountDownLatch started = new CountDownLatch(1);
+        AtomicBoolean interrupted = new AtomicBoolean();
+        executor.execute(() -> {
+            started.countDown();
+            long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(200L);
+            while (System.nanoTime() < end) {
+                if (Thread.currentThread().isInterrupted())
+                    interrupted.set(true);
+            }
+        });
+        started.await();
+        executor.shutdown();
+        // 空闲的工作者被中断后立即退出，忙碌的工作者执行完任务后退出
+        assertTrue(executor.awaitTermination(3L, TimeUnit.SECONDS));
+        assertFalse(interrupted.get());
+    }
+
+    @Test(timeout = 5000L)
+    public void shutdownLetsQueuedTasksFinish() throws Exception {
+        executor = newExecutor(1, 1);
+        AtomicInteger done = new AtomicInteger();
+        for (int i = 0; i < 20; i++) {
+            executor.execute(() -> {
+                try {
+                    Thread.sleep(2L);
+                    done.incrementAndGet();
+                } catch (InterruptedException ignore) {
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(3L, TimeUnit.SECONDS));
+        assertEquals(20, done.get());
+    }
+
+    @Test(timeout = 5000L)
+    public void shutdownNowInterruptsBusyWorkers() throws Exception {
+        executor = newExecutor(2, 2);
+        CountDownLatch started = new CountDownLatch(2);
+        AtomicInteger interrupted = new AtomicInteger();
+        for (int i = 0; i < 2; i++) {
+            executor.execute(() -> {
+                started.countDown();
+                try {
+                    Thread.sleep(10000L);
+                } catch (InterruptedException e) {
+                    interrupted.incrementAndGet();
+                }
+            });
+        }
+        executor.execute(() -> {
+        });
+        started.await();
+        List<Runnable> pending = executor.shutdownNow();
+        assertEquals(1, pending.size());
+        assertTrue(executor.awaitTermination(3L, TimeUnit.SECONDS));
+        assertEquals(2, interrupted.get());
+    }
+
+    @Test(timeout = 20000L)
+    public void interruptingIdleWorkersNeverHitsARunningTask() throws Exception {
+        // 反复缩小核心线程数会中断空闲工作者，与工作者在IDLE与BUSY之间切换竞争
+        executor = newExecutor(4, 4);
+        executor.prestartAllCoreThreads();
+        final int tasks = 20000;
+        AtomicInteger interruptedTasks = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(tasks);
+        AtomicBoolean stop = new AtomicBoolean();
+        Thread resizer = new Thread(() -> {
+            boolean small = false;
+            while (! stop.get()) {
+                executor.setCorePoolSize((small = ! small) ? 3 : 4);
+                Thread.yield();
+            }
+        });
+        resizer.start();
+        try {
+            for (int i = 0; i < tasks; i++) {
+                executor.execute(() -> {
+                    if (Thread.interrupted())
+                        interruptedTasks.incrementAndGet();
+                    Thread.yield();
+                    if (Thread.currentThread().isInterrupted())
+                        interruptedTasks.incrementAndGet();
+                    done.countDown();
+                });
+            }
+            assertTrue(done.await(15L, TimeUnit.SECONDS));
+        } finally {
+            stop.set(true);
+            resizer.join();
+        }
+        assertEquals(0, interruptedTasks.get());
+    }
+
+    @Test(timeout = 5000L)
+    public void activeCountReflectsBusyPhase() throws Exception {
+        executor = newExecutor(2, 2);
+        executor.prestartAllCoreThreads();
+        assertEquals(0, executor.getActiveCount());
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        executor.execute(() -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException ignore) {
+            }
+        });
+        started.await();
+        assertEquals(1, executor.getActiveCount());
+        release.countDown();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2L);
+        while (executor.getActiveCount() != 0 && System.nanoTime() < deadline)
+            Thread.sleep(1L);
+        assertEquals(0, executor.getActiveCount());
+    }
+}